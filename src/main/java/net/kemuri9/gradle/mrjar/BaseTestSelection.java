@@ -0,0 +1,267 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Task that selects which of the "main" test classes are worth executing again for a version,
+ * being those that reach a class which the version overrides, in the contents that it resolves from the multi-release jar.
+ * <p>
+ * A class reaches another when the constant pool of its class file refers to it, directly or through other classes
+ * of the "main" code and tests. Such a static reference graph does not see classes that are only reached through
+ * reflection or other dynamic means, so the selection may miss tests that an override affects.
+ * The class files of the "main" test classes that are not selected are written to {@link #getExcludedTests()},
+ * by their relative path, unless the version has a test class of the same path.
+ */
+@CacheableTask
+public abstract class BaseTestSelection extends DefaultTask {
+
+    /**
+     * {@link Spec} that excludes the class files that a {@link BaseTestSelection} did not select from a test task.
+     * The excluded class files are only read once the test task executes.
+     */
+    static final class Exclusion implements Spec<FileTreeElement>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Provider<RegularFile> excludedTests;
+        private transient Set<String> excluded;
+
+        Exclusion(Provider<RegularFile> excludedTests) {
+            this.excludedTests = excludedTests;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(FileTreeElement element) {
+            if (excluded == null) {
+                File file = excludedTests.get().getAsFile();
+                try {
+                    excluded = new HashSet<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("failed to read the excluded tests from " + file, ex);
+                }
+            }
+            return !element.isDirectory() && excluded.contains(element.getRelativePath().getPathString());
+        }
+    }
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    /** types within descriptors and signatures, such as {@code Ljava/lang/String;} */
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;<>.\\[]+)[;<]");
+
+    /**
+     * Create a new {@link BaseTestSelection}
+     */
+    @Inject
+    public BaseTestSelection() {}
+
+    /**
+     * Class directories of the "main" code
+     * @return {@link ConfigurableFileCollection} of the class directories of the "main" code
+     */
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getBaseClasses();
+
+    /**
+     * Class directories of the "main" tests, to select from
+     * @return {@link ConfigurableFileCollection} of the class directories of the "main" tests
+     */
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getBaseTestClasses();
+
+    /**
+     * File that the relative paths of the class files of the "main" tests that are not selected are written to
+     * @return {@link RegularFileProperty} of the file of the class files that are not selected
+     */
+    @OutputFile
+    public abstract RegularFileProperty getExcludedTests();
+
+    /**
+     * Class directories of the version and of the lower versions that it resolves from the multi-release jar
+     * @return {@link ConfigurableFileCollection} of the class directories that override "main" classes
+     */
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getVersionClasses();
+
+    /**
+     * Class directories of the tests of the version, which are never excluded
+     * @return {@link ConfigurableFileCollection} of the class directories of the tests of the version
+     */
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getVersionTestClasses();
+
+    @TaskAction
+    void execute() throws IOException {
+        Map<String, Set<String>> references = new HashMap<>();
+        Map<String, String> testPaths = new HashMap<>();
+        readClasses(getBaseClasses(), references, new HashMap<>());
+        readClasses(getBaseTestClasses(), references, testPaths);
+        Map<String, String> overridden = new HashMap<>();
+        readClasses(getVersionClasses(), null, overridden);
+        Map<String, String> versionTests = new HashMap<>();
+        readClasses(getVersionTestClasses(), null, versionTests);
+
+        Set<String> affected = getReachingClasses(references, overridden.keySet());
+        Set<String> excluded = new TreeSet<>();
+        for (Map.Entry<String, String> test : testPaths.entrySet()) {
+            if (!affected.contains(test.getKey()) && !versionTests.containsKey(test.getKey())) {
+                excluded.add(test.getValue());
+            }
+        }
+
+        File output = getExcludedTests().get().getAsFile();
+        Files.createDirectories(output.getParentFile().toPath());
+        Files.write(output.toPath(), excluded, StandardCharsets.UTF_8);
+        getLogger().info("{} selected {} of {} test classes that reach the {} overridden classes", getPath(),
+                testPaths.size() - excluded.size(), testPaths.size(), overridden.size());
+    }
+
+    /**
+     * Read the class files of class directories
+     * @param classes {@link FileCollection} of the class directories
+     * @param references {@link Map} to put the references of each class into, by class name, or {@code null}
+     * @param paths {@link Map} to put the relative path of each class file into, by class name
+     */
+    private static void readClasses(FileCollection classes, Map<String, Set<String>> references,
+            Map<String, String> paths) {
+        classes.getAsFileTree().visit(details -> {
+            String path = details.getRelativePath().getPathString();
+            if (details.isDirectory() || !path.endsWith(CLASS_SUFFIX)) {
+                return;
+            }
+            String name = path.substring(0, path.length() - CLASS_SUFFIX.length());
+            if (references != null) {
+                references.put(name, readReferences(details.getFile()));
+            }
+            paths.put(name, path);
+        });
+    }
+
+    /**
+     * Determine the classes that reach any of the target classes
+     * @param references references of each class, by class name
+     * @param targets names of the classes to reach
+     * @return names of the classes that reach a target, including the targets
+     */
+    static Set<String> getReachingClasses(Map<String, Set<String>> references, Set<String> targets) {
+        Map<String, List<String>> referencedBy = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : references.entrySet()) {
+            for (String referenced : entry.getValue()) {
+                referencedBy.computeIfAbsent(referenced, (String ignored)-> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        Set<String> reaching = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(targets);
+        while (!pending.isEmpty()) {
+            String next = pending.pop();
+            if (reaching.add(next)) {
+                pending.addAll(referencedBy.getOrDefault(next, Collections.emptyList()));
+            }
+        }
+        return reaching;
+    }
+
+    /**
+     * Read the names of the classes that the constant pool of a class file refers to
+     * @param file class file to read
+     * @return internal names of the referenced classes, such as {@code java/lang/String}
+     */
+    static Set<String> readReferences(File file) {
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(file.toPath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to read " + file, ex);
+        }
+        try {
+            return readReferences(contents);
+        } catch (IOException ex) {
+            throw new IllegalStateException(file + " is not a valid class file", ex);
+        }
+    }
+
+    /**
+     * Read the names of the classes that the constant pool of a class file refers to
+     * @param contents contents of the class file
+     * @return internal names of the referenced classes
+     * @throws IOException when the contents are not of a class file
+     */
+    static Set<String> readReferences(byte[] contents) throws IOException {
+        ConstantPool pool = ConstantPool.read(new DataInputStream(new ByteArrayInputStream(contents)));
+        Set<String> references = new HashSet<>();
+        for (String name : pool.getNames(ConstantPool.CONSTANT_CLASS)) {
+            if (!name.startsWith("[")) {
+                references.add(name);
+            }
+        }
+        // field and method descriptors, signatures, and array classes
+        for (String value : pool.getUtf8Values()) {
+            if (value.indexOf(';') >= 0) {
+                Matcher matcher = DESCRIPTOR_TYPE.matcher(value);
+                while (matcher.find()) {
+                    references.add(matcher.group(1));
+                }
+            }
+        }
+        return references;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import javax.inject.Inject;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * {@link BuildService} that bounds how many forked compilations with the toolchain of a version of Java
+ * execute at the same time across the build, through the maximum parallel usages of the service.
+ * Each such compilation runs in a forked compiler daemon of the toolchain, or of the current JVM for languages
+ * that always fork, so this bounds the memory that the compiler daemons of the toolchain use.
+ */
+public abstract class CompilerDaemonLimit implements BuildService<BuildServiceParameters.None> {
+
+    private static final String NAME = "mrjarCompilerDaemons";
+
+    /**
+     * Register, or retrieve the already registered, {@link CompilerDaemonLimit} for the toolchain of a version of Java.
+     * The limit of the project that registers it first applies to the whole build.
+     * @param project {@link Project} that is being built out
+     * @param version version of Java of the toolchain
+     * @param maxParallel maximum number of compilations with the toolchain that execute at the same time
+     * @return {@link Provider} of the {@link CompilerDaemonLimit} for the toolchain
+     */
+    public static Provider<CompilerDaemonLimit> register(Project project, JavaVersion version, int maxParallel) {
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME + version.getMajorVersion(),
+                CompilerDaemonLimit.class, spec -> spec.getMaxParallelUsages().set(maxParallel));
+    }
+
+    /**
+     * Create a new {@link CompilerDaemonLimit}
+     */
+    @Inject
+    public CompilerDaemonLimit() {}
+}
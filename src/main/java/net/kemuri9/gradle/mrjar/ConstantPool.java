@@ -0,0 +1,169 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Constant pool of a compiled class file, read by walking its entries a single time.
+ * Only the UTF-8 entries are retained, along with the UTF-8 entry that each Class, Module and Package entry names.
+ * Every other entry is skipped over.
+ */
+final class ConstantPool {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    static final int CONSTANT_UTF8 = 1;
+    static final int CONSTANT_CLASS = 7;
+    static final int CONSTANT_MODULE = 19;
+    static final int CONSTANT_PACKAGE = 20;
+
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+
+    /** size, in bytes, of the constant pool entries that are skipped, indexed by tag */
+    private static final int[] CONSTANT_SIZES = new int[21];
+
+    static {
+        CONSTANT_SIZES[3] = 4; // Integer
+        CONSTANT_SIZES[4] = 4; // Float
+        CONSTANT_SIZES[CONSTANT_LONG] = 8;
+        CONSTANT_SIZES[CONSTANT_DOUBLE] = 8;
+        CONSTANT_SIZES[8] = 2; // String
+        CONSTANT_SIZES[9] = 4; // Fieldref
+        CONSTANT_SIZES[10] = 4; // Methodref
+        CONSTANT_SIZES[11] = 4; // InterfaceMethodref
+        CONSTANT_SIZES[12] = 4; // NameAndType
+        CONSTANT_SIZES[15] = 3; // MethodHandle
+        CONSTANT_SIZES[16] = 2; // MethodType
+        CONSTANT_SIZES[17] = 4; // Dynamic
+        CONSTANT_SIZES[18] = 4; // InvokeDynamic
+    }
+
+    /**
+     * Read the constant pool from the start of a class file
+     * @param in {@link DataInputStream} of the class file, which is left positioned after the constant pool
+     * @return {@link ConstantPool} of the class file
+     * @throws IOException when the contents are not of a class file, or its constant pool can not be understood
+     */
+    static ConstantPool read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("missing class file magic number");
+        }
+        // minor and major versions
+        in.readInt();
+
+        int count = in.readUnsignedShort();
+        ConstantPool pool = new ConstantPool(count);
+        for (int idx = 1; idx < count; ++idx) {
+            int tag = in.readUnsignedByte();
+            pool.tags[idx] = (byte) tag;
+            if (tag == CONSTANT_UTF8) {
+                pool.utf8[idx] = in.readUTF();
+            } else if (tag == CONSTANT_CLASS || tag == CONSTANT_MODULE || tag == CONSTANT_PACKAGE) {
+                pool.names[idx] = in.readUnsignedShort();
+            } else if (tag < CONSTANT_SIZES.length && CONSTANT_SIZES[tag] != 0) {
+                skip(in, CONSTANT_SIZES[tag]);
+                if (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) {
+                    // these take two slots in the constant pool
+                    ++idx;
+                }
+            } else {
+                // unknown constant, so the rest of the class file can not be understood
+                throw new IOException("unknown constant pool tag " + tag);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Skip over contents of a class file
+     * @param in {@link DataInputStream} of the class file
+     * @param length number of bytes to skip
+     * @throws IOException when the class file ends before then
+     */
+    static void skip(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private final byte[] tags;
+    private final String[] utf8;
+    private final int[] names;
+
+    private ConstantPool(int count) {
+        tags = new byte[count];
+        utf8 = new String[count];
+        names = new int[count];
+    }
+
+    /**
+     * Retrieve the value of a UTF-8 entry
+     * @param index index of the entry
+     * @return value of the entry, {@code null} when it is not a UTF-8 entry
+     */
+    String getUtf8(int index) {
+        return utf8[index];
+    }
+
+    /**
+     * Retrieve the values of all of the UTF-8 entries
+     * @return values of the UTF-8 entries, in order of the constant pool
+     */
+    List<String> getUtf8Values() {
+        List<String> values = new ArrayList<>();
+        for (String value : utf8) {
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Retrieve the name that a Class, Module or Package entry names
+     * @param index index of the entry
+     * @return name of the entry, {@code null} when it is not an entry with a name
+     */
+    String getName(int index) {
+        return (names[index] == 0) ? null : utf8[names[index]];
+    }
+
+    /**
+     * Retrieve the names of all of the entries of a tag
+     * @param tag tag of the entries, one of Class, Module or Package
+     * @return names of the entries, in order of the constant pool
+     */
+    List<String> getNames(int tag) {
+        List<String> values = new ArrayList<>();
+        for (int idx = 1; idx < tags.length; ++idx) {
+            if (tags[idx] == tag && getName(idx) != null) {
+                values.add(getName(idx));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+/**
+ * Task that places the contents that a release of Java resolves from a multi-release jar into a directory,
+ * as a replacement of the jar on the inner loop of development, such as for tests.
+ * <p>
+ * Each {@link Layer} places its contents under a prefix in the jar, either the root of the jar
+ * or the {@code META-INF/versions/N/} directory of a version. An entry of {@code META-INF/versions/N/} is placed in the root of the directory when {@code N} is the highest version
+ * up to {@link #getRelease()} that has the entry, and otherwise the entry of the root of the jar is.
+ * Nothing is compressed: files are hard linked from the contents when the file system allows it and copied otherwise,
+ * and files that are already up to date in the directory are left alone.
+ */
+@DisableCachingByDefault(because = "Not worth caching")
+public abstract class ExplodedMultiReleaseJar extends DefaultTask {
+
+    /**
+     * Layer of contents that are placed under a prefix in the jar
+     */
+    public static abstract class Layer {
+
+        /**
+         * Create a new {@link Layer}
+         */
+        @Inject
+        public Layer() {}
+
+        /**
+         * Contents of the layer. Entries are named by the path of the file relative to its root directory
+         * @return {@link ConfigurableFileCollection} of the contents of the layer
+         */
+        @InputFiles
+        @IgnoreEmptyDirectories
+        @PathSensitive(PathSensitivity.RELATIVE)
+        public abstract ConfigurableFileCollection getContents();
+
+        /**
+         * Prefix of the entries in the jar, either empty for the root of the jar, or ending with {@code /}
+         * @return {@link Property} of the prefix of the entries in the jar
+         */
+        @Input
+        public abstract Property<String> getPrefix();
+    }
+
+    private final List<Layer> layers;
+
+    /**
+     * Create a new {@link ExplodedMultiReleaseJar}
+     */
+    @Inject
+    public ExplodedMultiReleaseJar() {
+        layers = new ArrayList<>();
+    }
+
+    /**
+     * Directory that the resolved contents are placed into
+     * @return {@link DirectoryProperty} of the directory that the resolved contents are placed into
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDirectory();
+
+    /**
+     * {@link Layer}s of contents of the jar, in order of precedence
+     * @return {@link Layer}s of contents of the jar
+     */
+    @Nested
+    public List<Layer> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+    /**
+     * Feature release of Java that the contents are resolved for
+     * @return {@link Property} of the feature release of Java that the contents are resolved for
+     */
+    @Input
+    public abstract Property<Integer> getRelease();
+
+    /**
+     * Add a {@link Layer} of contents of the jar
+     * @param prefix prefix of the entries in the jar, or empty for the root of the jar
+     * @param configure {@link Action} to configure the {@link Layer} with
+     * @return {@link Layer} that was added
+     */
+    public Layer layer(String prefix, Action<? super Layer> configure) {
+        Layer layer = getObjects().newInstance(Layer.class);
+        layer.getPrefix().set((prefix.isEmpty() || prefix.endsWith("/")) ? prefix : prefix + "/");
+        configure.execute(layer);
+        layers.add(layer);
+        return layer;
+    }
+
+    @TaskAction
+    void execute() throws IOException {
+        Map<String, File> resolved = resolveEntries();
+        Path destination = getDestinationDirectory().get().getAsFile().toPath();
+
+        // remove everything that is no longer resolved, deepest first so that emptied directories can be removed
+        List<Path> existing;
+        try (Stream<Path> walk = Files.walk(destination)) {
+            existing = walk.filter(path -> !path.equals(destination))
+                    .sorted(Comparator.comparingInt(Path::getNameCount).reversed()).collect(Collectors.toList());
+        }
+        for (Path path : existing) {
+            String name = destination.relativize(path).toString().replace(File.separatorChar, '/');
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    if (!children.findAny().isPresent()) {
+                        Files.delete(path);
+                    }
+                }
+            } else if (!resolved.containsKey(name)) {
+                Files.delete(path);
+            }
+        }
+
+        int placed = 0;
+        for (Map.Entry<String, File> entry : resolved.entrySet()) {
+            if (place(entry.getValue().toPath(), destination.resolve(entry.getKey()))) {
+                ++placed;
+            }
+        }
+        getLogger().info("{} of {} entries were placed into {}", placed, resolved.size(), destination);
+    }
+
+    /**
+     * Resolve the entries of the jar as {@link #getRelease()} does
+     * @return files of the resolved entries by their name in the root of the jar
+     */
+    private Map<String, File> resolveEntries() {
+        int release = getRelease().get();
+        Map<String, File> resolved = new HashMap<>();
+        Map<String, Integer> resolvedVersions = new HashMap<>();
+        for (Layer layer : layers) {
+            String prefix = layer.getPrefix().get();
+            int version = 0;
+            if (prefix.startsWith(VersionedEntryDeduplicator.VERSIONS_PREFIX)) {
+                version = Integer.parseInt(prefix.substring(VersionedEntryDeduplicator.VERSIONS_PREFIX.length(),
+                        prefix.length() - 1));
+                if (version > release) {
+                    continue;
+                }
+            } else if (!prefix.isEmpty()) {
+                throw new IllegalStateException("layer prefix " + prefix + " is not of a version");
+            }
+            int layerVersion = version;
+            layer.getContents().getAsFileTree().visit(details -> {
+                if (details.isDirectory()) {
+                    return;
+                }
+                String name = details.getRelativePath().getPathString();
+                // the highest version wins, and of the same version the first layer
+                Integer current = resolvedVersions.get(name);
+                if (current == null || current < layerVersion) {
+                    resolved.put(name, details.getFile());
+                    resolvedVersions.put(name, layerVersion);
+                }
+            });
+        }
+        return resolved;
+    }
+
+    /**
+     * Place a file at the target, unless it is already there
+     * @return {@code true} when the file was placed, {@code false} when it was already up to date
+     */
+    private static boolean place(Path source, Path target) throws IOException {
+        if (Files.exists(target)) {
+            if (Files.isSameFile(source, target)) {
+                return false;
+            }
+            BasicFileAttributes sourceAttrs = Files.readAttributes(source, BasicFileAttributes.class);
+            BasicFileAttributes targetAttrs = Files.readAttributes(target, BasicFileAttributes.class);
+            // a copy retains the modification time of the source
+            if (sourceAttrs.size() == targetAttrs.size()
+                    && sourceAttrs.lastModifiedTime().equals(targetAttrs.lastModifiedTime())) {
+                return false;
+            }
+            Files.delete(target);
+        } else {
+            Files.createDirectories(target.getParent());
+        }
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException ex) {
+            // such as across file systems
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.util.function.Consumer;
+
+import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+/**
+ * Appends to the {@link FileCollection}s of tasks, such as their classpath.
+ * <p>
+ * Appending with {@link FileCollection#plus(FileCollection)} nests another {@link FileCollection} for each addition,
+ * which Gradle has to walk through every time the collection is snapshot.
+ * Instead every {@link FileCollection} of a task is replaced once with a {@link ConfigurableFileCollection},
+ * which is then appended to in order, so that the collection stays flat however many versions are added.
+ */
+public final class FlatFileCollections {
+
+    private static final String PREFIX = "mrjarFlat.";
+
+    private FlatFileCollections() {}
+
+    /**
+     * Append to a {@link FileCollection} of a task
+     * @param task {@link Task} that owns the {@link FileCollection}
+     * @param name name of the {@link FileCollection} within the task, such as {@code classpath}
+     * @param current current value of the {@link FileCollection}
+     * @param setter {@link Consumer} that replaces the value of the {@link FileCollection} in the task
+     * @param paths paths to append, as accepted by {@link ConfigurableFileCollection#from(Object...)}
+     */
+    public static void append(Task task, String name, FileCollection current, Consumer<FileCollection> setter,
+            Object... paths) {
+        ExtraPropertiesExtension extra = task.getExtensions().getExtraProperties();
+        String key = PREFIX + name;
+        Object flat = extra.has(key) ? extra.get(key) : null;
+        if (flat != current) {
+            // never flattened, or replaced by something else since
+            ConfigurableFileCollection created = task.getProject().getObjects().fileCollection().from(current);
+            extra.set(key, created);
+            setter.accept(created);
+            flat = created;
+        }
+        ((ConfigurableFileCollection) flat).from(paths);
+    }
+}
@@ -63,6 +63,32 @@ public interface MRJarExtension {
      */
     void baseVersion(Action<? super Version> configure);
 
+    /**
+     * Maximum heap size of the forked compilers of the toolchains that versions are compiled with, such as {@code 512m}
+     * @return {@link Property} for the maximum heap size of the forked compilers
+     */
+    @Input
+    Property<String> getCompilerMaxHeapSize();
+
+    /**
+     * State of omitting the versioned entries of the jar that are byte-identical to the entry that the JVM
+     * would otherwise resolve, from a lower version or from the root of the jar.
+     * The number of omitted entries and the bytes that are saved are reported when the jar is built.
+     * @return {@link Property} for the state of omitting redundant versioned entries
+     */
+    @Input
+    Property<Boolean> getDeduplicateVersionedEntries();
+
+    /**
+     * State of assembling a flat jar for each added version, with the contents that the version resolves
+     * from the multi-release jar, so that the JVM does not need to look up the versioned entries at runtime.
+     * The flat jars are published as additional variants that target their version,
+     * so that consumers on a known version of Java resolve the flat jar of that version.
+     * @return {@link Property} for the state of assembling flat jars for each added version
+     */
+    @Input
+    Property<Boolean> getFlatJars();
+
     /**
      * State of the tests for all added versions also including the "main" tests.
      * @return {@link Property} for the state of the version centric tests using the "main" tests.
@@ -70,6 +96,15 @@ public interface MRJarExtension {
     @Input
     Property<Boolean> getIncludeBaseTests();
 
+    /**
+     * State of writing the jar incrementally, with the {@code multiReleaseJar} task in place of the {@code jar} task.
+     * The jar is written according to the configuration of the {@code jar} task, which must not preserve file timestamps,
+     * and when only some of its contents changed, only those are compressed again while the rest is copied from the prior jar.
+     * @return {@link Property} for the state of writing the jar incrementally
+     */
+    @Input
+    Property<Boolean> getIncrementalJar();
+
     /**
      * Retrieve the current registered languages
      * @return current registered languages
@@ -77,6 +112,16 @@ public interface MRJarExtension {
     @Internal
     Map<String, LanguageSupport> getLanguages();
 
+    /**
+     * Maximum number of compilations with the toolchain of a version of Java that execute at the same time,
+     * across all projects of the build. Each of them runs in a forked compiler daemon,
+     * so this together with {@link #getCompilerMaxHeapSize()} keeps the memory of the compiler daemons within a budget.
+     * The limit of the project that is configured first applies to the whole build.
+     * @return {@link Property} for the maximum number of compilations with a toolchain that execute at the same time
+     */
+    @Input
+    Property<Integer> getMaxParallelCompilesPerToolchain();
+
     /**
      * State of the source jar being multi-release, similar to the compiled code jar
      * @return {@link Property} for the state of the source jar being multi-release
@@ -84,6 +129,52 @@ public interface MRJarExtension {
     @Input
     Property<Boolean> getMultireleaseSourceJar();
 
+    /**
+     * State of the tests for added versions that include the "main" tests, as {@link #getIncludeBaseTests()} does,
+     * only executing the "main" tests that reach a class which the version overrides,
+     * in itself or in the lower versions that it resolves from the multi-release jar.
+     * Which classes a test reaches is determined from the references between the class files,
+     * so classes that are only reached through reflection are not considered.
+     * All "main" tests are executed again when the build is run with {@code -Pmrjar.allBaseTests=true}.
+     * @return {@link Property} for the state of only executing the "main" tests that reach overridden classes
+     */
+    @Input
+    Property<Boolean> getSelectBaseTests();
+
+    /**
+     * State of skipping the sources of added versions whose conventional source directory,
+     * {@code src/javaN} or {@code src/javaNTest}, contains no files.
+     * Skipped sources are treated as if they were never configured, so no source sets, tasks,
+     * or jar contents are registered for them, and depending on them has no effect.
+     * This is intended for sharing one list of versions between many projects. It must be set before the versions
+     * are added, and setting it afterwards fails. Configuring other source directories for skipped sources fails,
+     * as the skipped sources are decided by their conventional source directory.
+     * @return {@link Property} for the state of skipping the sources of added versions that are empty
+     */
+    @Input
+    Property<Boolean> getSkipEmptyVersions();
+
+    /**
+     * Maximum number of test JVMs that the {@code test} and {@code javaNTest} tasks fork at the same time,
+     * across all projects of the build. When set, the duration of each execution of these tasks is recorded,
+     * the longest suites of a project are scheduled to start first, and the forks of each task are its share
+     * of the budget by its recorded duration, so that the slowest suite bounds the time that {@code check} takes.
+     * A test task is not started while the test tasks executing in any project use the forks of the budget
+     * that it is assigned. The budget of the project that is configured first applies to the whole build.
+     * @return {@link Property} for the maximum number of test JVMs that are forked at the same time
+     */
+    @Input
+    Property<Integer> getTestForkBudget();
+
+    /**
+     * State of the tests utilizing a directory of the contents that each version resolves from the Jar,
+     * instead of the Jar itself. This retains the multi-release behaviors of {@link #getUseJarInTests()},
+     * without having to assemble the Jar each time the tests execute.
+     * @return {@link Property} for the state of the tests using the exploded Jar in testing.
+     */
+    @Input
+    Property<Boolean> getUseExplodedJarInTests();
+
     /**
      * State of the tests utilizing the Jar instead of the class files directly.
      * For some scenarios where module definitions are provided, the version of a class file desired to be
@@ -94,6 +185,16 @@ public interface MRJarExtension {
     @Input
     Property<Boolean> getUseJarInTests();
 
+    /**
+     * State of compiling every version with a single Java compiler, targeting each version with {@code --release}.
+     * The compiler is the current JVM when it is at least the highest version,
+     * and otherwise the toolchain of the highest version, so that only one compiler needs to be provisioned and started.
+     * Tests of each version still run with the toolchain of their version, as {@link #getUseToolchain()} determines.
+     * @return {@link Property} for the state of compiling every version with a single Java compiler
+     */
+    @Input
+    Property<Boolean> getUseSingleCompiler();
+
     /**
      * State of all tasks using version specific Java toolchains to perform the tasks with
      * @return state of all tasks using version specific Java toolchains to perform the tasks with
@@ -15,24 +15,43 @@
  */
 package net.kemuri9.gradle.mrjar;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
-import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.java.TargetJvmVersion;
+import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.JavaBasePlugin;
+import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.util.PatternFilterable;
+import org.gradle.build.event.BuildEventsListenerRegistry;
 import org.gradle.internal.jvm.JavaModuleDetector;
 
 import net.kemuri9.gradle.mrjar.languages.LanguageSupport;
@@ -40,30 +59,89 @@ import org.jetbrains.annotations.NotNull;
 
 class MRJarExtensionImpl implements MRJarExtension, Action<Project> {
 
+    /** Name of the input property of the jar tasks for the state of omitting redundant versioned entries */
+    private static final String DEDUPLICATE_INPUT_NAME = "deduplicateVersionedEntries";
+
+    /** Name of the {@link MultiReleaseJar} task that writes the jar incrementally */
+    static final String MULTI_RELEASE_JAR_TASK_NAME = "multiReleaseJar";
+
+    /** Name of the manifest attribute that declares a jar is a multi-release jar */
+    private static final String MULTI_RELEASE_ATTRIBUTE = "Multi-Release";
+
+    /** Name of the {@link TestTimingReport} task that compares the durations of the tests between versions */
+    static final String TEST_TIMING_REPORT_TASK_NAME = "testTimingReport";
+
+    /**
+     * Action performed on a layer of contents that is placed in a jar
+     */
+    @FunctionalInterface
+    private interface LayerAction {
+        /**
+         * Perform the action on the layer
+         * @param prefix prefix of the layer in the jar, or empty for the root of the jar
+         * @param contents contents of the layer
+         * @param filter {@link Action} that filters the contents of the layer
+         */
+        void execute(String prefix, Object contents, Action<PatternFilterable> filter);
+    }
+
     private final Project project;
     private VersionBase baseVersion;
     private JavaVersion baseJavaVersion;
     private final Map<JavaVersion, VersionAdd> versions;
 
+    private final Property<String> compilerMaxHeapSize;
+    private final Property<Boolean> deduplicateVersionedEntries;
+    private final Property<Boolean> flatJars;
     private final Property<Boolean> includeBaseTests;
+    private final Property<Boolean> incrementalJar;
+    private final Property<Integer> maxParallelCompilesPerToolchain;
     private final Property<Boolean> multireleaseSourceJar;
+    private final Property<Boolean> selectBaseTests;
+    private final Property<Boolean> skipEmptyVersions;
+    private final Property<Integer> testForkBudget;
+    private final Property<Boolean> useExplodedJarInTests;
     private final Property<Boolean> useJarInTests;
+    private final Property<Boolean> useSingleCompiler;
     private final Property<Boolean> useToolchain;
     private final ObjectFactory objFactory;
+    private final BuildEventsListenerRegistry listeners;
     final JavaModuleDetector moduleDetector;
 
     final Map<String, LanguageSupport> languages;
 
+    /** dependencies between the tasks of the versions, to only declare the ones that are not already implied */
+    final TaskDependencyGraph taskDependencies;
+
+    /** toolchains of the project that are shared between its tasks */
+    final ToolchainProviders toolchainProviders;
+
     @javax.inject.Inject
-    public MRJarExtensionImpl(Project project, ObjectFactory objFactory, JavaModuleDetector moduleDetector) {
+    public MRJarExtensionImpl(Project project, ObjectFactory objFactory, JavaModuleDetector moduleDetector,
+            BuildEventsListenerRegistry listeners) {
         this.project = project;
         this.objFactory = objFactory;
+        this.listeners = listeners;
         versions = new EnumMap<>(JavaVersion.class);
+        this.compilerMaxHeapSize = objFactory.property(String.class);
+        this.deduplicateVersionedEntries = objFactory.property(Boolean.class);
+        this.flatJars = objFactory.property(Boolean.class);
         this.includeBaseTests = objFactory.property(Boolean.class);
+        this.incrementalJar = objFactory.property(Boolean.class);
+        this.maxParallelCompilesPerToolchain = objFactory.property(Integer.class);
         this.multireleaseSourceJar = objFactory.property(Boolean.class);
+        this.selectBaseTests = objFactory.property(Boolean.class);
+        this.skipEmptyVersions = objFactory.property(Boolean.class);
+        // the sources of a version are skipped as they are configured, so setting it once they were is an error
+        this.skipEmptyVersions.finalizeValueOnRead();
+        this.testForkBudget = objFactory.property(Integer.class);
+        this.useExplodedJarInTests = objFactory.property(Boolean.class);
         this.useJarInTests = objFactory.property(Boolean.class);
+        this.useSingleCompiler = objFactory.property(Boolean.class);
         this.useToolchain = objFactory.property(Boolean.class);
         this.moduleDetector = moduleDetector;
+        this.taskDependencies = new TaskDependencyGraph();
+        this.toolchainProviders = new ToolchainProviders();
 
         // load languages list
         languages = new HashMap<>();
@@ -126,13 +204,6 @@ class MRJarExtensionImpl implements MRJarExtension, Action<Project> {
                     + isPrimaryModuleDefinition);
         }
 
-        // calculate modularity of source sets
-        SourceSetContainer sourceSets = Utils.getSourceSets(project);
-        for (SourceSet sourceSet : sourceSets) {
-            Modularity modularity = Utils.calculateModularity(sourceSet);
-            new DslObject(sourceSet).getExtensions().add("modularity", modularity);
-        }
-
         if (baseVersion != null) {
             baseVersion.postConfigure();
         }
@@ -142,12 +213,122 @@ class MRJarExtensionImpl implements MRJarExtension, Action<Project> {
         }
 
         // setup jar
-        setupJar("jar", SourceSet::getOutput);
+        VersionedEntryDeduplicator deduplicator = setupJar(JavaPlugin.JAR_TASK_NAME, SourceSet::getOutput);
+        if (getIncrementalJar().getOrElse(Boolean.FALSE)) {
+            setupIncrementalJar(deduplicator);
+        }
+        if (getFlatJars().getOrElse(Boolean.FALSE)) {
+            setupFlatJars();
+        }
         // setup source jar
         if (getMultireleaseSourceJar().getOrElse(Boolean.FALSE)) {
-            String name = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME).getSourcesJarTaskName();
+            String name = Utils.getSourceSets(project).getByName(SourceSet.MAIN_SOURCE_SET_NAME).getSourcesJarTaskName();
             setupJar(name, SourceSet::getAllSource);
         }
+        if (getTestForkBudget().isPresent()) {
+            scheduleTests();
+        }
+        registerTestTimingReport();
+    }
+
+    /**
+     * Retrieve the test tasks of the "main" tests and of the added versions
+     * @return names of the test tasks, with the version of Java that each executes the tests of, in order of version
+     */
+    private Map<String, JavaVersion> getTestTaskNames() {
+        Map<String, JavaVersion> names = new LinkedHashMap<>();
+        if (project.getTasks().getNames().contains(JavaPlugin.TEST_TASK_NAME)) {
+            names.put(JavaPlugin.TEST_TASK_NAME, getBaseVersion());
+        }
+        for (VersionAdd version : versions.values()) {
+            if (project.getTasks().getNames().contains(version.getTestName())) {
+                names.put(version.getTestName(), version.getVersion());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Register the {@link TestTimingReport} that compares the JUnit XML results of the test tasks
+     */
+    private void registerTestTimingReport() {
+        Map<String, JavaVersion> names = getTestTaskNames();
+        if (names.isEmpty() || project.getTasks().getNames().contains(TEST_TIMING_REPORT_TASK_NAME)) {
+            return;
+        }
+        project.getTasks().register(TEST_TIMING_REPORT_TASK_NAME, TestTimingReport.class, task -> {
+            task.setDescription("Compares the durations of the tests between the versions of Java.");
+            task.setGroup(JavaBasePlugin.VERIFICATION_GROUP);
+            task.getDestinationDirectory().set(project.getLayout().getBuildDirectory().dir("reports/mrjar/testTimings"));
+            names.forEach((name, version) -> {
+                TaskProvider<Test> test = project.getTasks().named(name, Test.class);
+                task.results(results -> {
+                    results.getTaskName().set(name);
+                    results.getRelease().set(Integer.parseInt(version.getMajorVersion()));
+                    // the results of the tests that have executed are compared, without having the tests execute
+                    results.getReports().from((Callable<File>) () ->
+                            test.get().getReports().getJunitXml().getOutputLocation().get().getAsFile());
+                });
+                task.mustRunAfter(test);
+            });
+        });
+    }
+
+    /**
+     * Schedule the test tasks of the project with the {@link TestScheduler}, longest first,
+     * with each forking its share of the budget of test JVMs
+     */
+    private void scheduleTests() {
+        List<String> names = new ArrayList<>(getTestTaskNames().keySet());
+        if (names.isEmpty()) {
+            return;
+        }
+
+        Provider<TestScheduler> scheduler = TestScheduler.register(project, listeners,
+                Math.max(1, getTestForkBudget().get()));
+        // the budget of the project that registered the scheduler first applies to the whole build
+        int budget = TestScheduler.getForkBudget(project);
+        List<Provider<TestScheduler.ForkSlot>> slots = TestScheduler.registerForkSlots(project, budget);
+        Map<String, Integer> schedule = project.getProviders().of(TestScheduleSource.class, spec -> {
+            spec.getParameters().getDurationsFile().set(TestScheduler.getDurationsFile(project));
+            spec.getParameters().getForkBudget().set(budget);
+            spec.getParameters().getTaskPaths().set(names.stream()
+                    .map(project::absoluteProjectPath).collect(Collectors.toList()));
+        }).get();
+
+        String previous = null;
+        int nextSlot = 0;
+        for (Map.Entry<String, Integer> entry : schedule.entrySet()) {
+            String name = entry.getKey().substring(entry.getKey().lastIndexOf(':') + 1);
+            // consecutive slots, so that the tasks of the project only wait on each other once the budget is used up
+            List<Provider<TestScheduler.ForkSlot>> taskSlots = new ArrayList<>();
+            for (int idx = 0; idx < entry.getValue(); ++idx) {
+                taskSlots.add(slots.get((nextSlot + idx) % budget));
+            }
+            nextSlot = (nextSlot + entry.getValue()) % budget;
+            String longer = previous;
+            project.getTasks().named(name, Test.class).configure(task -> {
+                TestScheduler.schedule(task, scheduler, taskSlots);
+                if (longer != null) {
+                    // only a hint, so a shorter suite still starts when the longer ones are not ready to
+                    task.shouldRunAfter(longer);
+                }
+            });
+            previous = name;
+        }
+    }
+
+    /**
+     * Retrieve the version of Java that compiles every version, when compiling with a single compiler
+     * @return version of Java that compiles every version, {@code null} when each version is compiled on its own
+     */
+    JavaVersion getSingleCompilerVersion() {
+        if (!useSingleCompiler.getOrElse(Boolean.FALSE)) {
+            return null;
+        }
+        JavaVersion highest = versions.isEmpty() ? getBaseVersion() : Collections.max(versions.keySet());
+        // a newer current JVM compiles every version without any toolchain
+        return JavaVersion.current().isCompatibleWith(highest) ? JavaVersion.current() : highest;
     }
 
     JavaVersion getBaseVersion() {
@@ -157,26 +338,76 @@ class MRJarExtensionImpl implements MRJarExtension, Action<Project> {
         return baseJavaVersion;
     }
 
+    @Override
+    public Property<String> getCompilerMaxHeapSize() {
+        return compilerMaxHeapSize;
+    }
+
+    @Override
+    public Property<Boolean> getDeduplicateVersionedEntries() {
+        return deduplicateVersionedEntries;
+    }
+
+    @Override
+    public Property<Boolean> getFlatJars() {
+        return flatJars;
+    }
+
     @Override
     public Property<Boolean> getIncludeBaseTests() {
         return includeBaseTests;
     }
 
+    @Override
+    public Property<Boolean> getIncrementalJar() {
+        return incrementalJar;
+    }
+
     @Override
     public Map<String, LanguageSupport> getLanguages() {
         return Collections.unmodifiableMap(languages);
     }
 
+    @Override
+    public Property<Integer> getMaxParallelCompilesPerToolchain() {
+        return maxParallelCompilesPerToolchain;
+    }
+
     @Override
     public Property<Boolean> getMultireleaseSourceJar() {
         return multireleaseSourceJar;
     }
 
+    @Override
+    public Property<Boolean> getSelectBaseTests() {
+        return selectBaseTests;
+    }
+
+    @Override
+    public Property<Boolean> getSkipEmptyVersions() {
+        return skipEmptyVersions;
+    }
+
+    @Override
+    public Property<Integer> getTestForkBudget() {
+        return testForkBudget;
+    }
+
+    @Override
+    public Property<Boolean> getUseExplodedJarInTests() {
+        return useExplodedJarInTests;
+    }
+
     @Override
     public Property<Boolean> getUseJarInTests() {
         return useJarInTests;
     }
 
+    @Override
+    public Property<Boolean> getUseSingleCompiler() {
+        return useSingleCompiler;
+    }
+
     @Override
     public Property<Boolean> getUseToolchain() {
         return useToolchain;
@@ -186,38 +417,220 @@ class MRJarExtensionImpl implements MRJarExtension, Action<Project> {
         return versions;
     }
 
-    private void setupJar(String name, Function<SourceSet, Object> getCopyContents) {
-        project.getTasks().named(name, Jar.class, jar -> {
-            SourceSetContainer sourceSets = Utils.getSourceSets(project);
-            // declare that jar is a multi-release
-            jar.getManifest().attributes(Collections.singletonMap("Multi-Release", "true"));
-            // handle insertions into the jar
-            for (Map.Entry<JavaVersion, VersionAdd> entry : versions.entrySet()) {
-                Version ver = entry.getValue();
-                String verNum = entry.getKey().getMajorVersion();
-                SourceSet verSource = sourceSets.findByName("java" + verNum);
-                if (verSource == null) {
-                    // a test only source
-                    continue;
+    /**
+     * Perform an action for each layer of version contents that is placed in a jar
+     * @param getCopyContents {@link Function} to retrieve the contents of a version's {@link SourceSet}
+     * @param layerAction {@link LayerAction} to perform for each layer
+     */
+    private void forEachVersionLayer(Function<SourceSet, Object> getCopyContents, LayerAction layerAction) {
+        SourceSetContainer sourceSets = Utils.getSourceSets(project);
+        for (Map.Entry<JavaVersion, VersionAdd> entry : versions.entrySet()) {
+            Version ver = entry.getValue();
+            String verNum = entry.getKey().getMajorVersion();
+            SourceSet verSource = sourceSets.findByName("java" + verNum);
+            if (verSource == null) {
+                // a test only source
+                continue;
+            }
+
+            Object copySource = getCopyContents.apply(verSource);
+            if (ver.getPrimaryModuleDefinition().getOrElse(Boolean.FALSE)) {
+                // is primary definition, so the module-info goes into the root of the jar
+                layerAction.execute("", copySource, filter -> filter.include("module-info**"));
+                // but the rest goes into the version folder
+                layerAction.execute("META-INF/versions/" + verNum, copySource, filter -> filter.exclude("module-info**"));
+            } else {
+                // no special handling of module-info, everything goes into the version folder
+                layerAction.execute("META-INF/versions/" + verNum, copySource, filter -> {});
+            }
+        }
+    }
+
+    /**
+     * Add the layers of the multi-release jar
+     * @param layer {@link BiConsumer} that adds a layer by its prefix and the {@link Action} configuring it
+     */
+    private void addLayers(BiConsumer<String, Action<ExplodedMultiReleaseJar.Layer>> layer) {
+        SourceSet main = Utils.getSourceSets(project).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        layer.accept("", added -> added.getContents().from(main.getOutput()));
+        forEachVersionLayer(SourceSet::getOutput, (prefix, contents, filter) -> layer.accept(prefix, added ->
+            added.getContents().from(project.files(contents).getAsFileTree().matching(filter))));
+    }
+
+    /**
+     * Retrieve the {@link ExplodedMultiReleaseJar} of a version, registering it on first request
+     * @param version {@link JavaVersion} to retrieve the {@link ExplodedMultiReleaseJar} of
+     * @return {@link TaskProvider} of the {@link ExplodedMultiReleaseJar}
+     */
+    TaskProvider<ExplodedMultiReleaseJar> getExplodedJar(JavaVersion version) {
+        String name = "java" + version.getMajorVersion() + "ExplodedJar";
+        if (project.getTasks().getNames().contains(name)) {
+            return project.getTasks().named(name, ExplodedMultiReleaseJar.class);
+        }
+        return project.getTasks().register(name, ExplodedMultiReleaseJar.class, task -> {
+            task.setDescription("Places the contents that Java " + version.getMajorVersion()
+                    + " resolves from the multi-release jar into a directory.");
+            task.getRelease().set(Integer.parseInt(version.getMajorVersion()));
+            task.getDestinationDirectory().set(project.getLayout().getBuildDirectory()
+                    .dir("mrjar/exploded/java" + version.getMajorVersion()));
+            addLayers(task::layer);
+        });
+    }
+
+    /**
+     * Have the {@link MultiReleaseJar} write the jar in place of the jar task, from the copy specification of the jar task
+     * @param deduplicator {@link VersionedEntryDeduplicator} of the jar task, {@code null} when not deduplicating
+     */
+    private void setupIncrementalJar(VersionedEntryDeduplicator deduplicator) {
+        TaskProvider<Jar> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class);
+        TaskProvider<MultiReleaseJar> multiReleaseJar = project.getTasks().register(MULTI_RELEASE_JAR_TASK_NAME,
+                MultiReleaseJar.class, task -> {
+            task.setGroup(BasePlugin.BUILD_GROUP);
+            task.setDescription("Assembles the jar archive incrementally.");
+            // the complete specification of the jar, including the manifest and any customization of the build
+            Jar jarTask = jar.get();
+            task.with(jarTask);
+            // the same archive as the jar task, written with the same settings
+            task.getDestinationDirectory().set(jarTask.getDestinationDirectory());
+            task.getArchiveFileName().set(jarTask.getArchiveFileName());
+            task.setEntryCompression(jarTask.getEntryCompression());
+            task.setMetadataCharset(jarTask.getMetadataCharset());
+            task.setPreserveFileTimestamps(jarTask.isPreserveFileTimestamps());
+            task.setReproducibleFileOrder(jarTask.isReproducibleFileOrder());
+            task.setZip64(jarTask.isZip64());
+            // compression is one of the workers of the build, so do not use more threads than it has
+            task.getCompressionThreads().convention(project.getGradle().getStartParameter().getMaxWorkerCount());
+            task.getInputs().property(DEDUPLICATE_INPUT_NAME, deduplicator != null);
+            if (deduplicator != null) {
+                task.doLast(deduplicator::finish);
+            }
+        });
+        jar.configure(task -> {
+            // everything that consumes the jar, such as publications and tests, gets the archive that is written incrementally
+            task.dependsOn(multiReleaseJar);
+            task.onlyIf("the jar is written by " + MULTI_RELEASE_JAR_TASK_NAME, spec -> false);
+        });
+        // the jar task only has its own action, unless the build added more that would no longer be performed
+        project.getGradle().getTaskGraph().whenReady(graph -> {
+            Jar jarTask = jar.get();
+            if (graph.hasTask(jarTask) && jarTask.getActions().size() > 1) {
+                throw new GradleException(jarTask.getPath() + " has actions besides writing the jar, which are not performed"
+                        + " when the jar is written incrementally, so move them to " + MULTI_RELEASE_JAR_TASK_NAME
+                        + " or disable incrementalJar");
+            }
+        });
+    }
+
+    private void setupFlatJars() {
+        // gather the layers in ascending order of version, with the layers of the root of the jar having no version
+        List<JavaVersion> layerVersions = new ArrayList<>();
+        List<Action<Jar>> layers = new ArrayList<>();
+        forEachVersionLayer(SourceSet::getOutput, (prefix, contents, filter) -> {
+            layerVersions.add(prefix.isEmpty() ? null
+                    : JavaVersion.toVersion(prefix.substring(VersionedEntryDeduplicator.VERSIONS_PREFIX.length())));
+            layers.add(jar -> jar.from(contents, copy -> filter.execute(copy)));
+        });
+
+        SourceSetContainer sourceSets = Utils.getSourceSets(project);
+        SourceSet main = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        Configuration runtimeElements = project.getConfigurations().getByName(main.getRuntimeElementsConfigurationName());
+        for (JavaVersion version : versions.keySet()) {
+            SourceSet verSource = sourceSets.findByName("java" + version.getMajorVersion());
+            if (verSource == null) {
+                // a test only source
+                continue;
+            }
+            String taskName = verSource.getName() + "FlatJar";
+            TaskProvider<Jar> flatJar = project.getTasks().register(taskName, Jar.class, jar -> {
+                jar.setGroup(BasePlugin.BUILD_GROUP);
+                jar.setDescription("Assembles a jar archive of the contents that Java " + version.getMajorVersion()
+                        + " resolves from the multi-release jar.");
+                jar.getArchiveClassifier().set(verSource.getName());
+                // carry the manifest of the multi-release jar, other than declaring it is a multi-release jar
+                Jar mainJar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class).get();
+                jar.getManifest().from(mainJar.getManifest(), merge -> merge.eachEntry(details -> {
+                    if (MULTI_RELEASE_ATTRIBUTE.equalsIgnoreCase(details.getKey())) {
+                        details.exclude();
+                    }
+                }));
+                // only the first of each entry is what the version resolves, so go from the highest version down
+                jar.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE);
+                for (int idx = layers.size() - 1; idx >= 0; --idx) {
+                    JavaVersion layerVersion = layerVersions.get(idx);
+                    if (layerVersion != null && layerVersion.compareTo(version) <= 0) {
+                        layers.get(idx).execute(jar);
+                    }
+                }
+                for (int idx = 0; idx < layers.size(); ++idx) {
+                    if (layerVersions.get(idx) == null) {
+                        layers.get(idx).execute(jar);
+                    }
                 }
+                // added as a child specification, as those of the root specification are copied before any child
+                jar.from(main.getOutput(), copy -> {});
+            });
 
-                Object copySource = getCopyContents.apply(verSource);
-                if (ver.getPrimaryModuleDefinition().getOrElse(Boolean.FALSE)) {
-                    // is primary definition, so the module-info goes into the root of the jar
-                    jar.into("", (copy)-> {
-                        copy.from(copySource);
-                        copy.include("module-info**");
-                    });
-                    // but the rest goes into the version folder
-                    jar.into("META-INF/versions/" + verNum, (copy)-> {
-                       copy.from(copySource);
-                       copy.exclude("module-info**");
-                    });
-                } else {
-                    // no special handling of module-info, everything goes into the version folder
-                    jar.into("META-INF/versions/" + verNum, (copy)-> copy.from(copySource));
+            // publish as a variant of the runtime elements that targets the version
+            Configuration config = project.getConfigurations().create(verSource.getName() + "FlatRuntimeElements", conf -> {
+                conf.setDescription("Flat jar of the contents that Java " + version.getMajorVersion()
+                        + " resolves from the multi-release jar.");
+                conf.setCanBeConsumed(true);
+                conf.setCanBeResolved(false);
+                conf.extendsFrom(runtimeElements.getExtendsFrom().toArray(new Configuration[0]));
+                AttributeContainer attributes = runtimeElements.getAttributes();
+                for (Attribute<?> attribute : attributes.keySet()) {
+                    copyAttribute(attributes, conf.getAttributes(), attribute);
+                }
+                conf.getAttributes().attribute(TargetJvmVersion.TARGET_JVM_VERSION_ATTRIBUTE,
+                        Integer.parseInt(version.getMajorVersion()));
+                conf.getOutgoing().artifact(flatJar);
+            });
+            project.getComponents().named("java", AdhocComponentWithVariants.class, component ->
+                component.addVariantsFromConfiguration(config, details -> details.mapToMavenScope("runtime")));
+        }
+    }
+
+    private static <T> void copyAttribute(AttributeContainer from, AttributeContainer to, Attribute<T> attribute) {
+        T value = from.getAttribute(attribute);
+        if (value != null) {
+            to.attribute(attribute, value);
+        }
+    }
+
+    /**
+     * Setup a jar task to assemble a multi-release jar
+     * @param name name of the jar task
+     * @param getCopyContents {@link Function} to retrieve the contents of a {@link SourceSet} that are placed in the jar
+     * @return {@link VersionedEntryDeduplicator} that omits redundant entries from the jar, {@code null} when not deduplicating
+     */
+    private VersionedEntryDeduplicator setupJar(String name, Function<SourceSet, Object> getCopyContents) {
+        boolean deduplicate = deduplicateVersionedEntries.getOrElse(Boolean.FALSE);
+        VersionedEntryDeduplicator deduplicator = deduplicate ? new VersionedEntryDeduplicator() : null;
+        project.getTasks().named(name, Jar.class, jar -> {
+            // declare that jar is a multi-release
+            jar.getManifest().attributes(Collections.singletonMap(MULTI_RELEASE_ATTRIBUTE, "true"));
+            // the omitted entries are decided by an action on the contents, which is not tracked by itself
+            jar.getInputs().property(DEDUPLICATE_INPUT_NAME, deduplicate);
+            if (deduplicate) {
+                SourceSet main = Utils.getSourceSets(project).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+                deduplicator.addLayer("", project.files(getCopyContents.apply(main)));
+                jar.eachFile(deduplicator);
+                // the incremental jar reports the omitted entries in place of the jar task
+                if (!JavaPlugin.JAR_TASK_NAME.equals(name) || !getIncrementalJar().getOrElse(Boolean.FALSE)) {
+                    jar.doLast(deduplicator::finish);
                 }
             }
+            // handle insertions into the jar
+            forEachVersionLayer(getCopyContents, (prefix, contents, filter) -> {
+                jar.into(prefix, copy -> {
+                    copy.from(contents);
+                    filter.execute(copy);
+                });
+                if (deduplicate) {
+                    deduplicator.addLayer(prefix, project.files(contents).getAsFileTree().matching(filter));
+                }
+            });
         });
+        return deduplicator;
     }
 }
@@ -15,8 +15,11 @@
  */
 package net.kemuri9.gradle.mrjar;
 
+import javax.inject.Inject;
+
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.configuration.BuildFeatures;
 import org.gradle.api.plugins.JavaBasePlugin;
 
 /**
@@ -24,10 +27,22 @@ import org.gradle.api.plugins.JavaBasePlugin;
  */
 public class MRJarPlugin implements Plugin<Project> {
 
+    private final BuildFeatures features;
+
+    /**
+     * Create a new {@link MRJarPlugin}
+     * @param features {@link BuildFeatures} of the build
+     */
+    @Inject
+    public MRJarPlugin(BuildFeatures features) {
+        this.features = features;
+    }
+
     @Override
     public void apply(Project project) {
         // java base needs to be applied
         project.getPluginManager().apply(JavaBasePlugin.class);
+        SourceScanCache.register(project, features);
         // register the extension
         MRJarExtension ext = project.getExtensions().create(MRJarExtension.class, "mrjar", MRJarExtensionImpl.class, project);
         project.afterEvaluate((MRJarExtensionImpl) ext);
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility for reading details out of a compiled module-info.class.
+ * Only enough of the class file is parsed to reach the {@code Module} attribute,
+ * through the {@link ConstantPool} that retains the UTF-8 and module entries that the attribute references.
+ */
+final class ModuleClassReader {
+
+    private static final Logger log = LoggerFactory.getLogger(ModuleClassReader.class);
+
+    /**
+     * Read the name of the module out of the module-info.class that was compiled from the module-info.java
+     * by a prior build, when it is still current.
+     * @param classesDirs classes directories that may contain the compiled module-info.class
+     * @param moduleInfo {@link Path} to the module-info.java
+     * @return name of the module, or {@code null} when there is no current module-info.class
+     */
+    static String readModuleName(Iterable<File> classesDirs, Path moduleInfo) {
+        long sourceModified = moduleInfo.toFile().lastModified();
+        for (File classesDir : classesDirs) {
+            File compiled = new File(classesDir, "module-info.class");
+            // a class file older than the source is from before the source was changed
+            if (compiled.lastModified() >= sourceModified && compiled.isFile()) {
+                String moduleName = readModuleName(compiled.toPath());
+                if (moduleName != null) {
+                    return moduleName;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the name of the module out of the compiled module-info.class
+     * @param moduleInfo {@link Path} to the module-info.class
+     * @return name of the module, or {@code null} when it can not be read
+     */
+    static String readModuleName(Path moduleInfo) {
+        log.debug("reading module name from {}", moduleInfo);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(moduleInfo)))) {
+            String moduleName = readModuleName(in);
+            log.debug("read name {} from {}", moduleName, moduleInfo);
+            return moduleName;
+        } catch (IOException | IndexOutOfBoundsException ex) {
+            log.warn("failed to read contents of {}", moduleInfo, ex);
+            return null;
+        }
+    }
+
+    static String readModuleName(DataInputStream in) throws IOException {
+        ConstantPool pool = ConstantPool.read(in);
+
+        // access flags, this class, super class
+        ConstantPool.skip(in, 6);
+        ConstantPool.skip(in, 2 * in.readUnsignedShort()); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+
+        int attributeCount = in.readUnsignedShort();
+        for (int idx = 0; idx < attributeCount; ++idx) {
+            String name = pool.getUtf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if ("Module".equals(name)) {
+                return pool.getName(in.readUnsignedShort());
+            }
+            ConstantPool.skip(in, length);
+        }
+        return null;
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int idx = 0; idx < count; ++idx) {
+            // access flags, name, descriptor
+            ConstantPool.skip(in, 6);
+            int attributeCount = in.readUnsignedShort();
+            for (int attr = 0; attr < attributeCount; ++attr) {
+                ConstantPool.skip(in, 2);
+                ConstantPool.skip(in, in.readInt());
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.nio.file.Path;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+/**
+ * {@link ValueSource} of the name of the module that is declared by a module-info.java.
+ * The configuration cache then considers the name itself as an input, rather than the files the name is read from,
+ * so that it is invalidated when the name changes, but not when the compiled module-info.class is cleaned.
+ */
+abstract class ModuleNameSource implements ValueSource<String, ModuleNameSource.Params> {
+
+    /**
+     * {@link ValueSourceParameters} for the {@link ModuleNameSource}
+     */
+    interface Params extends ValueSourceParameters {
+
+        /**
+         * Classes directories that may contain the compiled module-info.class
+         * @return {@link ConfigurableFileCollection} of the classes directories
+         */
+        ConfigurableFileCollection getClassesDirs();
+
+        /**
+         * module-info.java to read the name of the module from
+         * @return {@link RegularFileProperty} of the module-info.java
+         */
+        RegularFileProperty getModuleInfo();
+    }
+
+    /**
+     * Create a new {@link ModuleNameSource}
+     */
+    @Inject
+    public ModuleNameSource() {}
+
+    @Override
+    public String obtain() {
+        Path moduleInfo = getParameters().getModuleInfo().get().getAsFile().toPath();
+        String moduleName = ModuleClassReader.readModuleName(getParameters().getClassesDirs(), moduleInfo);
+        return (moduleName != null) ? moduleName : ModuleReader.readModuleName(moduleInfo);
+    }
+}
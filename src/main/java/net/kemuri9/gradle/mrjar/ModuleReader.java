@@ -16,114 +16,241 @@
 package net.kemuri9.gradle.mrjar;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Utility for reading details out of the module-info.java
- * This is not actually necessary in practice, but it does help with debugging
+ * This is not actually necessary in practice, but it does help with debugging.
+ * <p>
+ * The contents are tokenized in a single pass, skipping comments, string and character literals,
+ * import declarations, and annotations along with their (nested) arguments,
+ * and the tokenizing stops as soon as the module name has been read.
  */
 final class ModuleReader {
 
-    private static final class State {
-        boolean inComment;
-        boolean inModuleName;
-        StringBuilder moduleName;
+    private static final Logger log = LoggerFactory.getLogger(ModuleReader.class);
+
+    /** contents being tokenized */
+    private final CharBuffer contents;
+    /** current position in the contents */
+    private int pos;
+
+    ModuleReader(CharBuffer contents) {
+        this.contents = contents;
+    }
 
-        State() {
-            moduleName = new StringBuilder(128);
+    static String readModuleName(Path moduleInfo) {
+        log.debug("reading module name from {}", moduleInfo);
+        String moduleName = "";
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(moduleInfo));
+            moduleName = new ModuleReader(StandardCharsets.UTF_8.newDecoder().decode(bytes)).readModuleName();
+        } catch (CharacterCodingException ex) {
+            log.error("contents of {} are not UTF-8", moduleInfo, ex);
+        } catch (IOException ex) {
+            log.error("failed to read contents of {}", moduleInfo, ex);
         }
+        log.debug("read name {} from {}", moduleName, moduleInfo);
+        return moduleName;
     }
 
-    private static final Logger log = LoggerFactory.getLogger(ModuleReader.class);
+    /**
+     * Read the module name out of the contents
+     * @return module name that is declared, or empty when no module is declared
+     */
+    String readModuleName() {
+        int length = contents.length();
+        while (skipIgnored() < length) {
+            char c = contents.get(pos);
+            if (c == '@') {
+                pos++;
+                skipAnnotation();
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = pos;
+                skipIdentifier();
+                if (isKeyword(start, "module")) {
+                    return readQualifiedName();
+                } else if (isKeyword(start, "import")) {
+                    skipUntil(';');
+                }
+                // anything else, such as "open", has no impact on the name
+            } else {
+                pos++;
+            }
+        }
+        return "";
+    }
+
+    private boolean isKeyword(int start, String keyword) {
+        int length = pos - start;
+        if (length != keyword.length()) {
+            return false;
+        }
+        for (int idx = 0; idx < length; ++idx) {
+            if (contents.get(start + idx) != keyword.charAt(idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the dot separated name that ends the module declaration header.
+     * White space and comments are permitted between the parts of the name
+     */
+    private String readQualifiedName() {
+        StringBuilder name = new StringBuilder(64);
+        int length = contents.length();
+        while (skipIgnored() < length) {
+            char c = contents.get(pos);
+            if (c == '{') {
+                break;
+            } else if (c == '.' || Character.isJavaIdentifierPart(c)) {
+                name.append(c);
+            } else if (c == '@') {
+                // annotations are permitted on neither the name nor its parts, but a type annotation is harmless to skip
+                pos++;
+                skipAnnotation();
+                continue;
+            }
+            pos++;
+        }
+        return name.toString();
+    }
 
-    private static String handleComments(State state, String line) {
-        // filter out multi-line comment style
-        int commentStart = line.indexOf("/*");
-        int commentEnd = line.indexOf("*/");
-        /* there technically can be multiple multi-line comments on a single line, so keep checking
-          and a comment can start on the same line another ends*/
-        while (commentStart != -1 && commentEnd != -1 && commentEnd > commentStart) {
-            line = line.substring(0, commentStart) + line.substring(commentEnd+2);
-            commentStart = line.indexOf("/*");
-            commentEnd = line.indexOf("*/");
+    /**
+     * Skip an annotation, the {@code @} having already been consumed.
+     * This includes the annotation arguments, which may contain further annotations, strings, and parenthesis
+     */
+    private void skipAnnotation() {
+        int length = contents.length();
+        // annotation type name, which may be qualified and have white space or comments between its parts
+        while (skipIgnored() < length) {
+            char c = contents.get(pos);
+            if (Character.isJavaIdentifierStart(c)) {
+                skipIdentifier();
+            } else if (c == '.') {
+                pos++;
+            } else {
+                break;
+            }
+            if (skipIgnored() < length && contents.get(pos) != '.') {
+                // not a continuation of the qualified name
+                break;
+            }
+            // consume the dot so that the next part of the name is read
+            pos++;
         }
-        if (commentEnd != -1) {
-            state.inComment = false;
-            line = line.substring(commentEnd+2);
+        if (pos >= length || contents.get(pos) != '(') {
+            return;
         }
-        if (commentStart != -1) {
-            state.inComment = true;
-            line = line.substring(0, commentStart);
-        } else if (state.inComment) {
-            return "";
+        // balance the parenthesis of the arguments, skipping over everything inside of them
+        int depth = 0;
+        while (skipIgnored() < length) {
+            char c = contents.get(pos++);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return;
+            }
         }
+    }
 
-        // filter out one-line comment
-        int oneLineComment = line.indexOf("//");
-        if (oneLineComment != -1) {
-            line = line.substring(0, oneLineComment);
+    private void skipBlockComment() {
+        int length = contents.length();
+        pos += 2;
+        while (pos < length) {
+            if (contents.get(pos) == '*' && pos + 1 < length && contents.get(pos + 1) == '/') {
+                pos += 2;
+                return;
+            }
+            pos++;
         }
-        return line;
     }
 
-    private static String handleAnnotations(State state, String line) {
-        if (line.isEmpty()) {
-            return line;
+    private void skipIdentifier() {
+        int length = contents.length();
+        pos++;
+        while (pos < length && Character.isJavaIdentifierPart(contents.get(pos))) {
+            pos++;
         }
+    }
 
-        // TODO - Annotations are a bit more complex as they can nest
-        return line;
+    /**
+     * Skip over everything that does not contribute tokens: white space, comments, and literals
+     * @return position after the skipped contents
+     */
+    private int skipIgnored() {
+        int length = contents.length();
+        while (pos < length) {
+            char c = contents.get(pos);
+            char next = pos + 1 < length ? contents.get(pos + 1) : 0;
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '/' && next == '/') {
+                skipLineComment();
+            } else if (c == '/' && next == '*') {
+                skipBlockComment();
+            } else if (c == '"' || c == '\'') {
+                skipLiteral(c);
+            } else {
+                break;
+            }
+        }
+        return pos;
     }
 
-    private static void handleModuleName(State state, String line) {
-        if (line.isEmpty()) {
-            // nothing to do when line is empty
-            return;
+    private void skipLineComment() {
+        int length = contents.length();
+        while (pos < length && contents.get(pos) != '\n' && contents.get(pos) != '\r') {
+            pos++;
         }
-        // the name is between the "module" keyword and "{", but it can be split across lines
-        int moduleNameStart = line.indexOf("module");
-        int moduleNameEnd = line.indexOf("{", moduleNameStart+1);
-        // name declaration is only a single line
-        if (moduleNameStart != -1 && moduleNameEnd != -1) {
-            state.moduleName.append(line.substring(moduleNameStart+6, moduleNameEnd));
-        } else if (moduleNameStart != -1) {
-            state.moduleName.append(line.substring(moduleNameStart+6));
-            state.inModuleName = true;
-        } else if (moduleNameEnd != -1) {
-            state.moduleName.append(line.substring(0, moduleNameEnd));
-            state.inModuleName = false;
-        } else if (state.inModuleName) {
-            state.moduleName.append(line);
+    }
+
+    /**
+     * Skip a string, text block, or character literal that starts at the current position
+     * @param quote quote character that starts and ends the literal
+     */
+    private void skipLiteral(char quote) {
+        int length = contents.length();
+        boolean textBlock = quote == '"' && pos + 2 < length
+                && contents.get(pos + 1) == '"' && contents.get(pos + 2) == '"';
+        pos += textBlock ? 3 : 1;
+        while (pos < length) {
+            char c = contents.get(pos++);
+            if (c == '\\') {
+                // escaped character, which may be the quote
+                pos++;
+            } else if (c == quote && !textBlock) {
+                return;
+            } else if (c == quote && pos + 1 < length && contents.get(pos) == quote && contents.get(pos + 1) == quote) {
+                pos += 2;
+                return;
+            } else if (!textBlock && (c == '\n' || c == '\r')) {
+                // unterminated literal, which can not continue across lines
+                return;
+            }
         }
     }
 
-    static String readModuleName(Path moduleInfo) {
-        log.debug("reading module name from {}", moduleInfo);
-        State state = new State();
-        try (Stream<String> lines = Files.lines(moduleInfo, StandardCharsets.UTF_8)) {
-            for (Iterator<String> lineIter = lines.iterator(); lineIter.hasNext();) {
-                String line = lineIter.next();
-                line = handleComments(state, line);
-                line = handleAnnotations(state, line);
-                handleModuleName(state, line);
-                if (state.moduleName.length() > 0 && !state.inModuleName) {
-                    // completed reading module name
-                    break;
-                }
+    /**
+     * Skip until after the next occurrence of the character that is not within a comment or literal
+     * @param end character to skip until
+     */
+    private void skipUntil(char end) {
+        int length = contents.length();
+        while (skipIgnored() < length) {
+            if (contents.get(pos++) == end) {
+                return;
             }
-        } catch (IOException | IndexOutOfBoundsException ex) {
-            log.error("failed to read contents of {}", moduleInfo, ex);
         }
-        // remove any white space
-        String moduleName = state.moduleName.toString().replaceAll("\\s", "");
-        log.debug("read name {} from {}", moduleName, moduleInfo);
-        return moduleName;
     }
 }
@@ -0,0 +1,582 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.inject.Inject;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.WorkResults;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+import org.gradle.work.DisableCachingByDefault;
+
+/**
+ * Task that writes a jar incrementally, from the same copy specification as a {@code Jar} task.
+ * <p>
+ * The entries are written in the order, and with the headers, that a {@code Jar} task writes them,
+ * so the archive is identical to the one that the {@code Jar} task writes with the same settings.
+ * When the contents of an entry are the same as those of the entry of the prior archive,
+ * the already compressed data of that entry is copied from the prior archive instead of compressing the contents again.
+ * The other entries are compressed in parallel, as configured by {@link #getCompressionThreads()},
+ * only a bounded number of entries ahead of the entry that is being written.
+ * <p>
+ * All entries have the same timestamp as Gradle's reproducible archives,
+ * so {@link #isPreserveFileTimestamps()} has to be {@code false}.
+ */
+@DisableCachingByDefault(because = "Not worth caching")
+public abstract class MultiReleaseJar extends Zip {
+
+    /** details of an entry that was written to an archive */
+    private static final class EntryRecord {
+        byte[] name;
+        int method;
+        long crc;
+        long compressedSize;
+        long size;
+        long offset;
+        int mode;
+
+        boolean isDirectory() {
+            return name.length > 0 && name[name.length - 1] == '/';
+        }
+    }
+
+    /** entry that is waiting to be written, with its data being compressed or copied from the prior archive */
+    private static final class PendingEntry {
+        EntryRecord record;
+        Future<byte[]> data;
+    }
+
+    /** MS-DOS date of the timestamp for all entries, which is the same as Gradle's reproducible timestamp */
+    private static final int DOS_DATE = (2 << 5) | 1;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_COUNT_LIMIT = 0xFFFF;
+    private static final int STORED = 0;
+
+    /** the platform that made the entries, which is unix as the external attributes hold unix permissions */
+    private static final int MADE_BY_UNIX = 3 << 8;
+    private static final int FILE_MODE = 0100000;
+    private static final int DIRECTORY_MODE = 040000;
+
+    /** number of entries per thread that are compressed ahead of being written, bounding the compressed data in memory */
+    private static final int ENTRIES_AHEAD_PER_THREAD = 16;
+
+    /**
+     * Create a new {@link MultiReleaseJar}
+     */
+    @Inject
+    public MultiReleaseJar() {
+        getArchiveExtension().set("jar");
+        getCompressionThreads().convention(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Number of threads that compress the entries in parallel. When registered by the plugin this defaults to
+     * the maximum number of workers of the build, and otherwise to the number of available processors.
+     * The entries are always written in the same order, so this has no effect on the contents of the jar.
+     * @return {@link Property} of the number of threads that compress the entries in parallel
+     */
+    @Internal
+    public abstract Property<Integer> getCompressionThreads();
+
+    @Override
+    protected CopyAction createCopyAction() {
+        if (isPreserveFileTimestamps()) {
+            throw new GradleException(getPath() + " writes all entries with the same timestamp,"
+                    + " which requires preserveFileTimestamps to be false on the jar");
+        }
+        File archive = getArchiveFile().get().getAsFile();
+        return stream -> {
+            try {
+                write(archive, stream);
+            } catch (IOException ex) {
+                throw new GradleException("Could not write " + archive, ex);
+            }
+            return WorkResults.didWork(true);
+        };
+    }
+
+    private void write(File archive, CopyActionProcessingStream stream) throws IOException {
+        // the same charset that the zip task encodes the names with, which is the platform's default when not set
+        Charset charset = (getMetadataCharset() == null) ? Charset.defaultCharset() : Charset.forName(getMetadataCharset());
+        Map<String, EntryRecord> previous = archive.isFile() ? readCentralDirectory(archive.toPath(), charset)
+                : Collections.emptyMap();
+
+        Path temp = new File(archive.getParentFile(), archive.getName() + ".tmp").toPath();
+        Files.createDirectories(temp.getParent());
+        int threads = Math.max(1, getCompressionThreads().get());
+        ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+        Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                FileChannel prior = previous.isEmpty() ? null : FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            ArchiveWriter writer = new ArchiveWriter(out, prior, previous, charset, pool, threads, deflaters);
+            try {
+                stream.process(writer);
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.finish();
+            getLogger().info("{} of {} files were copied from the prior archive", writer.reused.get(), writer.files);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            deflaters.forEach(Deflater::end);
+        }
+        Files.move(temp, archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** writes the entries in the order that they are processed, while compressing the following entries ahead */
+    private final class ArchiveWriter implements CopyActionProcessingStreamAction {
+        private final FileChannel out;
+        private final FileChannel prior;
+        private final Map<String, EntryRecord> previous;
+        private final Charset charset;
+        private final ForkJoinPool pool;
+        private final int ahead;
+        private final Queue<Deflater> deflaters;
+        private final int method;
+        private final int flags;
+        private final boolean zip64;
+        private final Deque<PendingEntry> pending = new ArrayDeque<>();
+        private final List<EntryRecord> written = new ArrayList<>();
+        private final AtomicInteger reused = new AtomicInteger();
+        private int files;
+
+        ArchiveWriter(FileChannel out, FileChannel prior, Map<String, EntryRecord> previous, Charset charset,
+                ForkJoinPool pool, int threads, Queue<Deflater> deflaters) {
+            this.out = out;
+            this.prior = prior;
+            this.previous = previous;
+            this.charset = charset;
+            this.pool = pool;
+            this.ahead = threads * ENTRIES_AHEAD_PER_THREAD;
+            this.deflaters = deflaters;
+            this.method = (getEntryCompression() == ZipEntryCompression.STORED) ? STORED : Deflater.DEFLATED;
+            this.flags = StandardCharsets.UTF_8.equals(charset) ? UTF8_FLAG : 0;
+            this.zip64 = isZip64();
+        }
+
+        @Override
+        public void processFile(FileCopyDetailsInternal details) {
+            try {
+                pending.add(prepare(details));
+                while (pending.size() > ahead) {
+                    written.add(writeEntry(pending.poll()));
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        void finish() throws IOException {
+            while (!pending.isEmpty()) {
+                written.add(writeEntry(pending.poll()));
+            }
+            writeCentralDirectory(written);
+        }
+
+        private PendingEntry prepare(FileCopyDetailsInternal details) throws IOException {
+            String name = details.getRelativePath().getPathString() + (details.isDirectory() ? "/" : "");
+            EntryRecord record = new EntryRecord();
+            record.name = name.getBytes(charset);
+            record.method = method;
+            record.mode = (details.isDirectory() ? DIRECTORY_MODE : FILE_MODE) | details.getPermissions().toUnixNumeric();
+            PendingEntry entry = new PendingEntry();
+            entry.record = record;
+            if (details.isDirectory()) {
+                entry.data = CompletableFuture.completedFuture(compress(new byte[0]));
+                return entry;
+            }
+
+            ++files;
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) Math.min(details.getSize(), Integer.MAX_VALUE));
+            details.copyTo(buffer);
+            byte[] contents = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(contents);
+            record.crc = crc.getValue();
+            record.size = contents.length;
+
+            EntryRecord priorRecord = previous.get(name);
+            Callable<byte[]> data = (priorRecord != null && priorRecord.method == method && priorRecord.crc == record.crc
+                    && priorRecord.size == record.size) ? () -> reuse(priorRecord, contents) : () -> compress(contents);
+            if (pool != null) {
+                entry.data = pool.submit(data);
+            } else {
+                try {
+                    entry.data = CompletableFuture.completedFuture(data.call());
+                } catch (IOException | RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new IOException(ex);
+                }
+            }
+            return entry;
+        }
+
+        /** copy the compressed data of the entry of the prior archive, when it is of exactly the same contents */
+        private byte[] reuse(EntryRecord priorRecord, byte[] contents) throws IOException {
+            ByteBuffer local = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(prior, local, priorRecord.offset);
+            if (local.getInt(0) != LOCAL_HEADER) {
+                return compress(contents);
+            }
+            long dataStart = priorRecord.offset + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+            ByteBuffer data = ByteBuffer.allocate(Math.toIntExact(priorRecord.compressedSize));
+            readFully(prior, data, dataStart);
+            // a matching checksum is not proof of the same contents, so compare them in full
+            boolean same = (method == STORED) ? Arrays.equals(data.array(), contents) : inflatesTo(data.array(), contents);
+            if (!same) {
+                return compress(contents);
+            }
+            reused.incrementAndGet();
+            return data.array();
+        }
+
+        private byte[] compress(byte[] contents) {
+            if (method == STORED) {
+                return contents;
+            }
+            Deflater deflater = deflaters.poll();
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+            try {
+                deflater.reset();
+                deflater.setInput(contents);
+                deflater.finish();
+                ByteArrayOutputStream data = new ByteArrayOutputStream(Math.max(64, contents.length / 2));
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    data.write(buffer, 0, length);
+                }
+                return data.toByteArray();
+            } finally {
+                deflaters.offer(deflater);
+            }
+        }
+
+        private EntryRecord writeEntry(PendingEntry entry) throws IOException {
+            EntryRecord record = entry.record;
+            byte[] data = await(entry.data);
+            record.offset = out.position();
+            record.compressedSize = data.length;
+            // with zip64 enabled the zip task reserves the sizes in an extra field of every local header
+            ByteBuffer header = ByteBuffer.allocate(30 + record.name.length + (zip64 ? 20 : 0))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(LOCAL_HEADER);
+            putCommonHeader(header, record, (record.method == STORED) ? 10 : 20, zip64 ? 20 : 0);
+            header.put(record.name);
+            if (zip64) {
+                header.putShort((short) ZIP64_EXTRA);
+                header.putShort((short) 16);
+                header.putLong(record.size);
+                header.putLong(record.compressedSize);
+            }
+            header.flip();
+            writeFully(out, header);
+            writeFully(out, ByteBuffer.wrap(data));
+            return record;
+        }
+
+        private void writeCentralDirectory(List<EntryRecord> records) throws IOException {
+            long start = out.position();
+            if (!zip64 && (records.size() >= ZIP64_COUNT_LIMIT || start >= ZIP64_LIMIT)) {
+                throw new GradleException(getPath() + " has more than 65535 entries or is larger than 4 GB,"
+                        + " which requires the zip64 extension to be enabled on the jar");
+            }
+            int madeBy = 20;
+            for (EntryRecord record : records) {
+                // the offset is the only value that can exceed the limit, as the contents of an entry are kept in memory
+                boolean offsetExtra = record.offset >= ZIP64_LIMIT;
+                if (offsetExtra) {
+                    // once the extension is needed, it is the version that every following entry is made by
+                    madeBy = 45;
+                }
+                ByteBuffer header = ByteBuffer.allocate(46 + record.name.length + (offsetExtra ? 12 : 0))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(CENTRAL_HEADER);
+                header.putShort((short) (MADE_BY_UNIX | madeBy));
+                putCommonHeader(header, record, offsetExtra ? 45 : (record.method == STORED ? 10 : 20),
+                        offsetExtra ? 12 : 0);
+                header.putShort((short) 0); // comment length
+                header.putShort((short) 0); // disk number
+                header.putShort((short) 0); // internal attributes
+                // unix mode, along with the MS-DOS attributes of directories and of read only entries
+                header.putInt((record.mode << 16) | (record.isDirectory() ? 0x10 : 0) | ((record.mode & 0200) == 0 ? 1 : 0));
+                header.putInt((int) Math.min(record.offset, ZIP64_LIMIT));
+                header.put(record.name);
+                if (offsetExtra) {
+                    header.putShort((short) ZIP64_EXTRA);
+                    header.putShort((short) 8);
+                    header.putLong(record.offset);
+                }
+                header.flip();
+                writeFully(out, header);
+            }
+            long end = out.position();
+            long size = end - start;
+            if (records.size() >= ZIP64_COUNT_LIMIT || start >= ZIP64_LIMIT || size >= ZIP64_LIMIT) {
+                ByteBuffer zip64End = ByteBuffer.allocate(76).order(ByteOrder.LITTLE_ENDIAN);
+                zip64End.putInt(ZIP64_END_OF_CENTRAL);
+                zip64End.putLong(44); // size of the remainder of the record
+                zip64End.putShort((short) 45); // version made by
+                zip64End.putShort((short) 45); // version needed
+                zip64End.putInt(0); // disk number
+                zip64End.putInt(0); // disk of central directory
+                zip64End.putLong(records.size());
+                zip64End.putLong(records.size());
+                zip64End.putLong(size);
+                zip64End.putLong(start);
+                zip64End.putInt(ZIP64_LOCATOR);
+                zip64End.putInt(0); // disk of ZIP64 end of central directory
+                zip64End.putLong(end);
+                zip64End.putInt(1); // number of disks
+                zip64End.flip();
+                writeFully(out, zip64End);
+            }
+            ByteBuffer endOfCentral = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            endOfCentral.putInt(END_OF_CENTRAL);
+            endOfCentral.putShort((short) 0); // disk number
+            endOfCentral.putShort((short) 0); // disk of central directory
+            endOfCentral.putShort((short) Math.min(records.size(), ZIP64_COUNT_LIMIT));
+            endOfCentral.putShort((short) Math.min(records.size(), ZIP64_COUNT_LIMIT));
+            endOfCentral.putInt((int) Math.min(size, ZIP64_LIMIT));
+            endOfCentral.putInt((int) Math.min(start, ZIP64_LIMIT));
+            endOfCentral.putShort((short) 0); // comment length
+            endOfCentral.flip();
+            writeFully(out, endOfCentral);
+        }
+
+        /** place the fields that are shared by the local and central headers, from the version needed to the extra length */
+        private void putCommonHeader(ByteBuffer header, EntryRecord record, int versionNeeded, int extraLength) {
+            header.putShort((short) versionNeeded);
+            header.putShort((short) flags);
+            header.putShort((short) record.method);
+            header.putShort((short) 0); // time
+            header.putShort((short) DOS_DATE);
+            header.putInt((int) record.crc);
+            header.putInt((int) record.compressedSize);
+            header.putInt((int) record.size);
+            header.putShort((short) record.name.length);
+            header.putShort((short) extraLength);
+        }
+    }
+
+    /** determine if the deflated data inflates to exactly the contents */
+    private static boolean inflatesTo(byte[] data, byte[] contents) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] inflated = new byte[contents.length];
+            byte[] excess = new byte[1];
+            int length = 0;
+            while (!inflater.finished()) {
+                int count = (length < inflated.length) ? inflater.inflate(inflated, length, inflated.length - length)
+                        : inflater.inflate(excess);
+                if (count > 0 && length == inflated.length) {
+                    return false;
+                } else if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return false;
+                }
+                length += count;
+            }
+            return length == inflated.length && Arrays.equals(inflated, contents);
+        } catch (DataFormatException ex) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing entries");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of archive");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Read the central directory of an archive that was written by this task
+     * @param archive {@link Path} to the archive
+     * @param charset {@link Charset} that the names of the entries are encoded with
+     * @return entries of the archive by name, or empty when the archive can not be understood
+     */
+    private static Map<String, EntryRecord> readCentralDirectory(Path archive, Charset charset) {
+        try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ)) {
+            // this task never writes an archive comment, so the end of central directory is at the very end
+            long size = in.size();
+            if (size < 22) {
+                return Collections.emptyMap();
+            }
+            ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(in, end, size - 22);
+            if (end.getInt(0) != END_OF_CENTRAL) {
+                return Collections.emptyMap();
+            }
+            long count = end.getShort(10) & 0xFFFF;
+            long centralSize = end.getInt(12) & ZIP64_LIMIT;
+            long centralStart = end.getInt(16) & ZIP64_LIMIT;
+            if (count == ZIP64_COUNT_LIMIT || centralSize == ZIP64_LIMIT || centralStart == ZIP64_LIMIT) {
+                // the actual values are in the ZIP64 end of central directory, which the locator precedes the end with
+                ByteBuffer locator = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(in, locator, size - 42);
+                if (locator.getInt(0) != ZIP64_LOCATOR) {
+                    return Collections.emptyMap();
+                }
+                ByteBuffer zip64End = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(in, zip64End, locator.getLong(8));
+                if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL) {
+                    return Collections.emptyMap();
+                }
+                count = zip64End.getLong(32);
+                centralSize = zip64End.getLong(40);
+                centralStart = zip64End.getLong(48);
+            }
+            ByteBuffer central = ByteBuffer.allocate(Math.toIntExact(centralSize)).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(in, central, centralStart);
+            central.flip();
+
+            Map<String, EntryRecord> entries = new HashMap<>((int) Math.min(count * 2, Integer.MAX_VALUE));
+            for (long idx = 0; idx < count; ++idx) {
+                int start = central.position();
+                if (central.getInt(start) != CENTRAL_HEADER) {
+                    return Collections.emptyMap();
+                }
+                EntryRecord record = new EntryRecord();
+                record.method = central.getShort(start + 10) & 0xFFFF;
+                record.crc = central.getInt(start + 16) & ZIP64_LIMIT;
+                record.compressedSize = central.getInt(start + 20) & ZIP64_LIMIT;
+                record.size = central.getInt(start + 24) & ZIP64_LIMIT;
+                int nameLength = central.getShort(start + 28) & 0xFFFF;
+                int extraLength = central.getShort(start + 30) & 0xFFFF;
+                int commentLength = central.getShort(start + 32) & 0xFFFF;
+                record.offset = central.getInt(start + 42) & ZIP64_LIMIT;
+                record.name = new byte[nameLength];
+                central.position(start + 46);
+                central.get(record.name);
+                readZip64Extra(central, central.position(), extraLength, record);
+                central.position(central.position() + extraLength + commentLength);
+                entries.put(new String(record.name, charset), record);
+            }
+            return entries;
+        } catch (IOException | RuntimeException ex) {
+            // the prior archive is only an optimization, so write everything when it can not be read
+            return Collections.emptyMap();
+        }
+    }
+
+    /** replace the values of the record that did not fit in the header by those of the ZIP64 extra field */
+    private static void readZip64Extra(ByteBuffer buffer, int start, int length, EntryRecord record) {
+        int position = start;
+        while (position + 4 <= start + length) {
+            int id = buffer.getShort(position) & 0xFFFF;
+            int size = buffer.getShort(position + 2) & 0xFFFF;
+            if (id == ZIP64_EXTRA) {
+                int field = position + 4;
+                if (record.size == ZIP64_LIMIT) {
+                    record.size = buffer.getLong(field);
+                    field += 8;
+                }
+                if (record.compressedSize == ZIP64_LIMIT) {
+                    record.compressedSize = buffer.getLong(field);
+                    field += 8;
+                }
+                if (record.offset == ZIP64_LIMIT) {
+                    record.offset = buffer.getLong(field);
+                }
+                return;
+            }
+            position += 4 + size;
+        }
+    }
+}
@@ -19,15 +19,16 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.internal.provider.Providers;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.CompileClasspath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.external.javadoc.internal.JavadocOptionFileOptionInternal;
@@ -41,6 +42,44 @@ import org.gradle.process.CommandLineArgumentProvider;
 public class PatchProvider implements CommandLineArgumentProvider,
         JavadocOptionFileOptionInternal<Map<String, List<File>>> {
 
+    /**
+     * {@link Map} of the patch values. Javadoc records the string form of an option's value as an input,
+     * so the string form is only the module names and their directory counts
+     * to keep the absolute directories out of the cache key.
+     */
+    private static final class PatchValues extends TreeMap<String, List<File>> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String toString() {
+            Map<String, Integer> counts = new TreeMap<>();
+            for (Map.Entry<String, List<File>> entry : entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().size());
+            }
+            return counts.toString();
+        }
+    }
+
+    /**
+     * {@link PatchProvider} for compilations. Only the ABI of the patched directories affects a compilation,
+     * so they are tracked as a compile classpath, and changes to the implementation of the classes in them
+     * do not cause the compilation to be out of date.
+     */
+    public static class Compile extends PatchProvider {
+
+        @Override
+        public Compile duplicate() {
+            return copyTo(new Compile());
+        }
+
+        @Override
+        @CompileClasspath
+        public List<Provider<File>> getPatchDirectories() {
+            return super.getPatchDirectories();
+        }
+    }
+
     /**
      * Retrieve a {@link PatchProvider} for the specified {@link List} of {@link CommandLineArgumentProvider}s.
      * If a {@link PatchProvider} is not contained in the {@link List}, one is added.
@@ -48,13 +87,27 @@ public class PatchProvider implements CommandLineArgumentProvider,
      * @return {@link PatchProvider} for the specified {@code providers}
      */
     public static PatchProvider getProvider(List<CommandLineArgumentProvider> providers) {
+        return getProvider(providers, false);
+    }
+
+    /**
+     * Retrieve a {@link PatchProvider.Compile} for the specified {@link List} of {@link CommandLineArgumentProvider}s
+     * of a compilation. If a {@link PatchProvider.Compile} is not contained in the {@link List}, one is added.
+     * @param providers {@link List} of {@link CommandLineArgumentProvider}s to retrieve the provider for.
+     * @return {@link PatchProvider.Compile} for the specified {@code providers}
+     */
+    public static Compile getCompileProvider(List<CommandLineArgumentProvider> providers) {
+        return (Compile) getProvider(providers, true);
+    }
+
+    private static PatchProvider getProvider(List<CommandLineArgumentProvider> providers, boolean compile) {
         for (CommandLineArgumentProvider provider : providers) {
-            if (provider instanceof PatchProvider) {
+            if (provider instanceof PatchProvider && (!compile || provider instanceof Compile)) {
                 return (PatchProvider) provider;
             }
         }
         // no hit, create and add
-        PatchProvider provider = new PatchProvider();
+        PatchProvider provider = compile ? new Compile() : new PatchProvider();
         providers.add(provider);
         return provider;
     }
@@ -66,7 +119,8 @@ public class PatchProvider implements CommandLineArgumentProvider,
      * Create a new {@link PatchProvider}
      */
     public PatchProvider() {
-        this.patches = new HashMap<>();
+        // sorted so that the arguments are in a consistent order between builds
+        this.patches = new TreeMap<>();
     }
 
     /**
@@ -93,6 +147,11 @@ public class PatchProvider implements CommandLineArgumentProvider,
      * @param directory {@link DirectoryProperty} representing the directory to patch the module with
      */
     public void add(String moduleName, Provider<File> directory) {
+        /* ignore nulls here instead of pruning them out later,
+         * so that there is no need to mutate state when the task is executing */
+        if (directory == null) {
+            return;
+        }
         List<Provider<File>> modulePatches = patches.computeIfAbsent(moduleName, (String ignored)-> new ArrayList<>());
         if (!modulePatches.contains(directory)) {
             modulePatches.add(directory);
@@ -101,7 +160,6 @@ public class PatchProvider implements CommandLineArgumentProvider,
 
     @Override
     public Iterable<String> asArguments() {
-        prune();
         if (patches.isEmpty()) {
             return Collections.emptyList();
         }
@@ -126,11 +184,23 @@ public class PatchProvider implements CommandLineArgumentProvider,
         return moduleName + "=" + paths;
     }
 
+    /**
+     * Copy the patches into another {@link PatchProvider}
+     * @param <P> type of {@link PatchProvider}
+     * @param dup {@link PatchProvider} to copy the patches into
+     * @return {@code dup}
+     */
+    protected <P extends PatchProvider> P copyTo(P dup) {
+        // copy the lists as well, otherwise adding to the duplicate modifies the original
+        for (Map.Entry<String, List<Provider<File>>> entry : patches.entrySet()) {
+            dup.patches.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return dup;
+    }
+
     @Override
     public PatchProvider duplicate() {
-        PatchProvider dup = new PatchProvider();
-        dup.patches.putAll(patches);
-        return dup;
+        return copyTo(new PatchProvider());
     }
 
     @Override
@@ -140,10 +210,40 @@ public class PatchProvider implements CommandLineArgumentProvider,
         return "-patch-module";
     }
 
+    /**
+     * Retrieve the number of directories that are patched into each module, by module name.
+     * Only the names and counts are an {@link Input}, the directories are tracked through {@link #getPatchDirectories()}
+     * so that the absolute locations of the directories do not prevent relocating the build cache entries.
+     * The counts attribute the flattened directories to their modules,
+     * so that moving a directory from one module to another changes the inputs.
+     * @return number of directories patched into each module
+     */
     @Input
+    public Map<String, Integer> getModulePatchCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, List<Provider<File>>> entry : patches.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return counts;
+    }
+
+    /**
+     * Retrieve the directories that are patched into the modules, ordered by the module names.
+     * @return directories that are patched into the modules
+     */
+    @Classpath
+    public List<Provider<File>> getPatchDirectories() {
+        List<Provider<File>> directories = new ArrayList<>();
+        for (List<Provider<File>> modulePatches : patches.values()) {
+            directories.addAll(modulePatches);
+        }
+        return directories;
+    }
+
+    @Internal
     @Override
     public Map<String, List<File>> getValue() {
-        Map<String, List<File>> values = new HashMap<>(patches.size());
+        Map<String, List<File>> values = new PatchValues();
         for (Map.Entry<String, List<Provider<File>>> entry : patches.entrySet()) {
             List<File> files = new ArrayList<>(entry.getValue().size());
             for (Provider<File> provider : entry.getValue()) {
@@ -154,22 +254,6 @@ public class PatchProvider implements CommandLineArgumentProvider,
         return values;
     }
 
-    /**
-     * Prune {@code null} and empty patch lists from the map
-     */
-    protected void prune() {
-        for (Iterator<Map.Entry<String, List<Provider<File>>>> entryIter = patches.entrySet().iterator(); entryIter.hasNext();) {
-            Map.Entry<String, List<Provider<File>>> entry = entryIter.next();
-            while (entry.getValue().contains(null)) {
-                entry.getValue().remove(null);
-            }
-            if (entry.getValue().isEmpty()) {
-                entryIter.remove();
-                continue;
-            }
-        }
-    }
-
     @Override
     public void setValue(Map<String, List<File>> value) {
         value = (value == null) ? Collections.emptyMap() : value;
@@ -183,7 +267,6 @@ public class PatchProvider implements CommandLineArgumentProvider,
 
     @Override
     public void write(JavadocOptionFileWriterContext writerContext) throws IOException {
-        prune();
         for (String moduleName : patches.keySet()) {
             writerContext.writeValueOption(getOption(), calcPatchArgument(moduleName));
         }
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.internal.AbstractValidatingNamedDomainObjectContainer;
+import org.gradle.api.internal.CollectionCallbackActionDecorator;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.compile.AbstractCompile;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sources of an added version that are skipped as they are empty.
+ * Nothing is registered for them, but their configuration is still performed to record their dependencies,
+ * so that the sources that depend on them depend on their dependencies in their place.
+ */
+class SkippedVersionSource extends AbstractValidatingNamedDomainObjectContainer<VersionSourceLanguage> implements VersionSource {
+
+    /**
+     * Language of skipped sources, whose configuration has no effect
+     */
+    static class SkippedLanguage implements VersionSourceLanguage {
+
+        private final String name;
+        private final File directory;
+        private final ObjectFactory objFactory;
+        private final SetProperty<String> dependsOnLanguages;
+
+        @javax.inject.Inject
+        public SkippedLanguage(String name, File directory, ObjectFactory objFactory) {
+            this.name = name;
+            this.directory = directory;
+            this.objFactory = objFactory;
+            dependsOnLanguages = objFactory.setProperty(String.class);
+        }
+
+        @Override
+        public void compile(Action<? super AbstractCompile> configure) {}
+
+        @Override
+        public void documentation(Action<? super SourceTask> configure) {}
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void src(Action<SourceDirectorySet> configure) {
+            /* the sources were skipped by their conventional directory being empty,
+             * which does not hold when they are configured with other directories */
+            SourceDirectorySet sources = objFactory.sourceDirectorySet(name, name);
+            sources.srcDir(directory);
+            configure.execute(sources);
+            if (!sources.getSrcDirs().equals(Collections.singleton(directory))) {
+                throw new InvalidUserDataException("The " + name + " sources in " + directory.getParentFile()
+                        + " are skipped as empty, and cannot be configured with the source directories "
+                        + sources.getSrcDirs() + ". Set skipEmptyVersions to false to use other source directories.");
+            }
+        }
+
+        @Override
+        public SetProperty<String> getDependsOnLanguages() {
+            return dependsOnLanguages;
+        }
+    }
+
+    private final VersionCommon version;
+    private final File directory;
+    private final ObjectFactory objFactory;
+    private final Property<String> patchesModule;
+    final Map<JavaVersion, VersionDependencyImpl> dependsOn;
+
+    @javax.inject.Inject
+    public SkippedVersionSource(VersionCommon version, File directory, ObjectFactory objFactory) {
+        super(VersionSourceLanguage.class, Utils.instantiateFromFactory(objFactory),
+                CollectionCallbackActionDecorator.NOOP);
+        this.version = version;
+        this.directory = directory;
+        this.objFactory = objFactory;
+        this.patchesModule = objFactory.property(String.class);
+        this.dependsOn = new EnumMap<>(JavaVersion.class);
+    }
+
+    @Override
+    public void dependsOn(Object version) {
+        dependsOn(version, null);
+    }
+
+    @Override
+    public void dependsOn(Object version, Action<VersionDependency> configure) {
+        VersionSourceImpl.addDependency(this.version, objFactory, dependsOn, version, configure);
+    }
+
+    @Override
+    protected @NotNull VersionSourceLanguage doCreate(@NotNull String name) {
+        // decorated, so that closures configure it as they do the languages of sources that are not skipped
+        return objFactory.newInstance(SkippedLanguage.class, name, new File(directory, name));
+    }
+
+    @Override
+    public Property<String> getPatchesModule() {
+        return patchesModule;
+    }
+
+    @Override
+    public void registerSourceJar() {}
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Project;
+import org.gradle.api.configuration.BuildFeatures;
+import org.gradle.api.file.DirectoryTree;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.tasks.util.PatternFilterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BuildService} that retains the results of scanning the sources between builds,
+ * so that sources which have not changed since they were last scanned do not need to be read again.
+ * A single instance is shared by all projects of the build, and the results are persisted under
+ * the build directory of the root project.
+ * The configuration cache considers any file that is read while configuring to be an input,
+ * so the results are not persisted while it is active, as they would invalidate it whenever they change.
+ * <ul>
+ * <li>Module names are retained per {@code module-info.java}, keyed on its path, size, and last modified time</li>
+ * <li>File extensions are retained per source directory tree, keyed on its directory and patterns,
+ *  and are valid for as long as the last modified times of the directories in the tree are unchanged</li>
+ * </ul>
+ */
+public abstract class SourceScanCache implements BuildService<SourceScanCache.Params>, AutoCloseable {
+
+    /**
+     * {@link BuildServiceParameters} for the {@link SourceScanCache}
+     */
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * File that the scan results are persisted to
+         * @return {@link RegularFileProperty} of the file that the scan results are persisted to
+         */
+        RegularFileProperty getCacheFile();
+
+        /**
+         * State of files that are read while configuring not being tracked as inputs.
+         * This is the case unless the configuration cache is active.
+         * @return {@link Property} of the state of files read while configuring not being tracked as inputs
+         */
+        Property<Boolean> getUntracked();
+    }
+
+    private static final class ModuleEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        long size;
+        long lastModified;
+        long scanned;
+        String moduleName;
+    }
+
+    private static final class TreeEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Map<String, Long> directories = new HashMap<>();
+        final Set<String> extensions = new HashSet<>();
+        long scanned;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SourceScanCache.class);
+
+    /** version of the persisted format, to be incremented when the persisted classes change */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String NAME = "mrjarSourceScanCache";
+
+    /** file systems may only have a granularity of seconds, so modifications within this time are not trusted */
+    private static final long TIMESTAMP_SLACK = 2000L;
+
+    /**
+     * Register, or retrieve the already registered, {@link SourceScanCache} for the build
+     * @param project {@link Project} that is being built out
+     * @param features {@link BuildFeatures} of the build, to determine whether the configuration cache is active
+     * @return {@link Provider} of the {@link SourceScanCache} for the build
+     */
+    public static Provider<SourceScanCache> register(Project project, BuildFeatures features) {
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, SourceScanCache.class, spec -> {
+            spec.getParameters().getCacheFile().set(
+                    project.getRootProject().getLayout().getBuildDirectory().file("mrjar/source-scan.bin"));
+            spec.getParameters().getUntracked().set(!features.getConfigurationCache().getActive().getOrElse(Boolean.FALSE));
+        });
+    }
+
+    /**
+     * Retrieve the {@link SourceScanCache} for the build, as registered when the plugin was applied
+     * @param project {@link Project} that is being built out
+     * @return {@link SourceScanCache} for the build
+     */
+    public static SourceScanCache get(Project project) {
+        return (SourceScanCache) project.getGradle().getSharedServices().getRegistrations().getByName(NAME)
+                .getService().get();
+    }
+
+    private static boolean isStable(long lastModified, long scanned) {
+        return lastModified < scanned - TIMESTAMP_SLACK;
+    }
+
+    private final Map<String, ModuleEntry> modules;
+    private final Map<String, TreeEntry> trees;
+    private volatile boolean modified;
+
+    /**
+     * Create a new {@link SourceScanCache}, loading the results persisted from prior builds
+     */
+    public SourceScanCache() {
+        modules = new ConcurrentHashMap<>();
+        trees = new ConcurrentHashMap<>();
+        load();
+    }
+
+    @Override
+    public void close() {
+        if (!modified || !isUntracked()) {
+            return;
+        }
+        File cacheFile = getParameters().getCacheFile().getAsFile().get();
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            Path temp = Files.createTempFile(cacheFile.getParentFile().toPath(), cacheFile.getName(), ".tmp");
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeObject(new HashMap<>(modules));
+                out.writeObject(new HashMap<>(trees));
+            }
+            Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.warn("failed to persist source scan results to {}", cacheFile, ex);
+        }
+    }
+
+    /**
+     * Retrieve the file extensions of the files in the {@link SourceDirectorySet}
+     * @param source {@link SourceDirectorySet} to retrieve the file extensions of
+     * @return file extensions, including the leading {@code .}, of the files in the {@link SourceDirectorySet}
+     */
+    public Set<String> getExtensions(SourceDirectorySet source) {
+        Set<String> extensions = new HashSet<>();
+        for (DirectoryTree tree : source.getSrcDirTrees()) {
+            extensions.addAll(getExtensions(tree, source.getFilter()));
+        }
+        return extensions;
+    }
+
+    private Set<String> getExtensions(DirectoryTree tree, PatternFilterable filter) {
+        File dir = tree.getDir().getAbsoluteFile();
+        String key = dir.getPath() + describe(tree.getPatterns()) + describe(filter);
+        TreeEntry entry = trees.get(key);
+        if (entry == null || !isCurrent(entry)) {
+            entry = scan(dir, tree.getPatterns(), filter);
+            trees.put(key, entry);
+            modified = true;
+        }
+        return Collections.unmodifiableSet(entry.extensions);
+    }
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+    private static String describe(PatternFilterable patterns) {
+        return "|" + new TreeSet<>(patterns.getIncludes()) + new TreeSet<>(patterns.getExcludes());
+    }
+
+    private static boolean isCurrent(TreeEntry entry) {
+        for (Map.Entry<String, Long> dir : entry.directories.entrySet()) {
+            // a missing directory is 0, so the directory being created is also detected
+            long lastModified = new File(dir.getKey()).lastModified();
+            if (lastModified != dir.getValue() || !isStable(lastModified, entry.scanned)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if files can be read while configuring without them being tracked as inputs.
+     * This is the case unless the configuration cache is active.
+     * @return state of files read while configuring not being tracked as inputs
+     */
+    public boolean isUntracked() {
+        return getParameters().getUntracked().get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        File cacheFile = getParameters().getCacheFile().getAsFile().get();
+        if (!isUntracked() || !cacheFile.isFile()) {
+            return;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(cacheFile.toPath()))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            modules.putAll((Map<String, ModuleEntry>) in.readObject());
+            trees.putAll((Map<String, TreeEntry>) in.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            // the results are only a cache, so start over when they can not be read
+            log.debug("failed to read source scan results from {}", cacheFile, ex);
+            modules.clear();
+            trees.clear();
+        }
+    }
+
+    /**
+     * Retrieve the name of the module that is defined by the {@code module-info.java}
+     * @param moduleInfo {@link Path} to the {@code module-info.java}
+     * @return name of the module that is defined
+     */
+    public String readModuleName(Path moduleInfo) {
+        File file = moduleInfo.toFile().getAbsoluteFile();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        ModuleEntry entry = modules.get(file.getPath());
+        if (entry != null && entry.size == size && entry.lastModified == lastModified
+                && isStable(lastModified, entry.scanned)) {
+            return entry.moduleName;
+        }
+
+        entry = new ModuleEntry();
+        entry.scanned = System.currentTimeMillis();
+        entry.size = size;
+        entry.lastModified = lastModified;
+        entry.moduleName = ModuleReader.readModuleName(moduleInfo);
+        modules.put(file.getPath(), entry);
+        modified = true;
+        return entry.moduleName;
+    }
+
+    private TreeEntry scan(File dir, PatternFilterable patterns, PatternFilterable filter) {
+        TreeEntry entry = new TreeEntry();
+        entry.scanned = System.currentTimeMillis();
+        entry.directories.put(dir.getPath(), dir.lastModified());
+        if (!dir.isDirectory()) {
+            return entry;
+        }
+        getObjects().fileTree().from(dir).matching(patterns).matching(filter).visit(details -> {
+            if (details.isDirectory()) {
+                entry.directories.put(details.getFile().getAbsolutePath(), details.getLastModified());
+                return;
+            }
+            String name = details.getName();
+            int extStart = name.lastIndexOf('.');
+            if (extStart != -1) {
+                entry.extensions.add(name.substring(extStart));
+            }
+        });
+        return entry;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+/**
+ * {@link ValueSource} of whether a source directory contains any file.
+ * The configuration cache then considers the presence of the sources as an input,
+ * so that it is invalidated once sources are added to a directory that was empty, or the other way around.
+ */
+abstract class SourcesPresentSource implements ValueSource<Boolean, SourcesPresentSource.Params> {
+
+    /**
+     * {@link ValueSourceParameters} for the {@link SourcesPresentSource}
+     */
+    interface Params extends ValueSourceParameters {
+
+        /**
+         * Source directory to check for files
+         * @return {@link DirectoryProperty} of the source directory
+         */
+        DirectoryProperty getDirectory();
+    }
+
+    /**
+     * Create a new {@link SourcesPresentSource}
+     */
+    @Inject
+    public SourcesPresentSource() {}
+
+    @Override
+    public Boolean obtain() {
+        Path directory = getParameters().getDirectory().get().getAsFile().toPath();
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        // the walk stops at the first file that is found
+        try (Stream<Path> walk = Files.walk(directory)) {
+            return walk.anyMatch(Files::isRegularFile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to check " + directory + " for sources", ex);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Directed acyclic graph of the dependencies between the tasks of the versions of a project, by task name,
+ * used to apply a transitive reduction to the explicit task dependencies.
+ * <p>
+ * When {@code compileJava17Java} depends on both {@code compileJava11Java} and {@code compileJava9Java},
+ * and {@code compileJava11Java} depends on {@code compileJava9Java} as well,
+ * then the dependency of {@code compileJava17Java} on {@code compileJava9Java} is already implied
+ * and does not need to be declared. Only the declared dependencies are reduced:
+ * the outputs of all depended on tasks still need to be on the classpath,
+ * as a class directory does not carry the classes of the directories it was compiled against.
+ */
+final class TaskDependencyGraph {
+
+    private final Map<String, Set<String>> edges;
+    private final Map<String, Set<String>> reachable;
+
+    TaskDependencyGraph() {
+        edges = new HashMap<>();
+        reachable = new HashMap<>();
+    }
+
+    /**
+     * Add a dependency between tasks
+     * @param from name of the task that depends on the other
+     * @param to name of the task that is depended on
+     */
+    void addEdge(String from, String to) {
+        if (from.equals(to)) {
+            return;
+        }
+        if (edges.computeIfAbsent(from, (String ignored)-> new LinkedHashSet<>()).add(to)) {
+            // any reachability determined so far may have changed
+            reachable.clear();
+        }
+    }
+
+    /**
+     * Determine whether a dependency between tasks is implied through the other dependencies of the task,
+     * such that it is not part of the transitive reduction of the graph.
+     * A dependency that is not yet known to be implied is never redundant,
+     * so that it is safe to ask while the graph is still being added to.
+     * @param from name of the task that depends on the other
+     * @param to name of the task that is depended on
+     * @return {@code true} when {@code to} is reachable from another dependency of {@code from}
+     */
+    boolean isRedundant(String from, String to) {
+        Set<String> direct = edges.get(from);
+        if (direct == null) {
+            return false;
+        }
+        for (String other : direct) {
+            if (!other.equals(to) && getReachable(other).contains(to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieve every task that is reachable from a task
+     * @param from name of the task to retrieve the reachable tasks of
+     * @return names of the tasks that are reachable from {@code from}
+     */
+    private Set<String> getReachable(String from) {
+        Set<String> found = reachable.get(from);
+        if (found != null) {
+            return found;
+        }
+        found = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(edges.getOrDefault(from, Collections.emptySet()));
+        while (!pending.isEmpty()) {
+            String next = pending.pop();
+            if (found.add(next)) {
+                pending.addAll(edges.getOrDefault(next, Collections.emptySet()));
+            }
+        }
+        reachable.put(from, found);
+        return found;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+/**
+ * {@link ValueSource} of the schedule of the test tasks of a project, from the durations that the {@link TestScheduler}
+ * recorded in prior builds. The schedule maps the paths of the test tasks, longest first, to their forks,
+ * with the forks of each task being its share of the budget by its duration, and at least one.
+ * A test task without a recorded duration is assumed to be as long as the longest one, so that it starts early.
+ * The configuration cache then considers the schedule as an input, rather than the recorded durations,
+ * so that it is only invalidated once the schedule changes.
+ */
+abstract class TestScheduleSource implements ValueSource<LinkedHashMap<String, Integer>, TestScheduleSource.Params> {
+
+    /**
+     * {@link ValueSourceParameters} for the {@link TestScheduleSource}
+     */
+    interface Params extends ValueSourceParameters {
+
+        /**
+         * File that the {@link TestScheduler} persists the durations of the test tasks to
+         * @return {@link RegularFileProperty} of the file of the durations of the test tasks
+         */
+        RegularFileProperty getDurationsFile();
+
+        /**
+         * Maximum number of forks that the test tasks share
+         * @return {@link Property} of the maximum number of forks that the test tasks share
+         */
+        Property<Integer> getForkBudget();
+
+        /**
+         * Paths of the test tasks to schedule, in the order to use among equal durations
+         * @return {@link ListProperty} of the paths of the test tasks to schedule
+         */
+        ListProperty<String> getTaskPaths();
+    }
+
+    /**
+     * Create a new {@link TestScheduleSource}
+     */
+    @Inject
+    public TestScheduleSource() {}
+
+    @Override
+    public LinkedHashMap<String, Integer> obtain() {
+        List<String> paths = getParameters().getTaskPaths().get();
+        Map<String, Long> recorded = TestScheduler.read(getParameters().getDurationsFile().get().getAsFile());
+        long longest = 1;
+        for (String path : paths) {
+            longest = Math.max(longest, recorded.getOrDefault(path, 0L));
+        }
+        List<Long> durations = new ArrayList<>();
+        long total = 0;
+        for (String path : paths) {
+            long duration = Math.max(1, recorded.getOrDefault(path, longest));
+            durations.add(duration);
+            total += duration;
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int idx = 0; idx < paths.size(); ++idx) {
+            order.add(idx);
+        }
+        // a stable sort, so that equal durations retain their given order
+        Collections.sort(order, Comparator.comparing(durations::get, Comparator.reverseOrder()));
+
+        int budget = getParameters().getForkBudget().get();
+        LinkedHashMap<String, Integer> schedule = new LinkedHashMap<>();
+        for (int idx : order) {
+            schedule.put(paths.get(idx), (int) Math.max(1, budget * durations.get(idx) / total));
+        }
+        return schedule;
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.services.BuildServiceRegistration;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BuildService} that the test tasks of the versions share across the build.
+ * The forks of all test tasks that execute at the same time are bounded by the budget: each fork of the budget
+ * is a {@link ForkSlot} that only one test task uses at a time, and each test task uses as many of the slots
+ * as it forks, so that Gradle does not start a test task until the test tasks using its slots finished,
+ * whether they succeed or fail. The duration of each execution of a test task is recorded,
+ * so that later builds can start the longest suites first and give them the larger shares of the budget.
+ * The durations are persisted under the build directory of the root project, keyed on the path of the task.
+ */
+public abstract class TestScheduler implements BuildService<TestScheduler.Params>, OperationCompletionListener,
+        AutoCloseable {
+
+    /**
+     * {@link BuildServiceParameters} for the {@link TestScheduler}
+     */
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * File that the durations of the test tasks are persisted to
+         * @return {@link RegularFileProperty} of the file that the durations are persisted to
+         */
+        RegularFileProperty getDurationsFile();
+
+        /**
+         * Maximum number of test JVMs that are forked at the same time
+         * @return {@link Property} of the maximum number of test JVMs that are forked at the same time
+         */
+        Property<Integer> getForkBudget();
+    }
+
+    /**
+     * {@link BuildService} of one fork of the budget, which only one test task uses at a time.
+     * Waiting for a slot is left to Gradle, so a waiting test task holds no worker and the build can be cancelled.
+     */
+    public abstract static class ForkSlot implements BuildService<BuildServiceParameters.None> {
+
+        /**
+         * Create a new {@link ForkSlot}
+         */
+        @Inject
+        public ForkSlot() {}
+    }
+
+    /**
+     * {@link Action} of a test task that marks the start of its execution
+     */
+    private static final class Start implements Action<Task> {
+
+        private final Provider<TestScheduler> scheduler;
+
+        Start(Provider<TestScheduler> scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void execute(Task task) {
+            scheduler.get().start(task.getPath());
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TestScheduler.class);
+
+    private static final String NAME = "mrjarTestScheduler";
+
+    private static final String SLOT_NAME = "mrjarTestFork";
+
+    private final Map<String, Long> started;
+    private final Map<String, Long> durations;
+
+    /**
+     * Register, or retrieve the already registered, {@link TestScheduler} for the build.
+     * The budget of the project that registers it first applies to the whole build.
+     * @param project {@link Project} that is being built out
+     * @param listeners {@link BuildEventsListenerRegistry} to have the {@link TestScheduler} notified of finished tasks
+     * @param forkBudget maximum number of test JVMs that are forked at the same time
+     * @return {@link Provider} of the {@link TestScheduler} for the build
+     */
+    public static Provider<TestScheduler> register(Project project, BuildEventsListenerRegistry listeners,
+            int forkBudget) {
+        Provider<TestScheduler> scheduler = project.getGradle().getSharedServices().registerIfAbsent(NAME,
+                TestScheduler.class, spec -> {
+                    spec.getParameters().getDurationsFile().set(getDurationsFile(project));
+                    spec.getParameters().getForkBudget().set(forkBudget);
+                });
+        // every project listens with the same service, to which finishing the same task more than once is harmless
+        listeners.onTaskCompletion(scheduler);
+        return scheduler;
+    }
+
+    /**
+     * Retrieve the budget of the registered {@link TestScheduler}, which is that of the project that registered it first
+     * @param project {@link Project} that is being built out
+     * @return maximum number of test JVMs that are forked at the same time across the build
+     */
+    static int getForkBudget(Project project) {
+        BuildServiceRegistration<?, ?> registration = project.getGradle().getSharedServices().getRegistrations()
+                .getByName(NAME);
+        return ((Params) registration.getParameters()).getForkBudget().get();
+    }
+
+    /**
+     * Register, or retrieve the already registered, {@link ForkSlot}s of the budget
+     * @param project {@link Project} that is being built out
+     * @param forkBudget maximum number of test JVMs that are forked at the same time
+     * @return {@link Provider}s of the {@link ForkSlot}s, one for each fork of the budget
+     */
+    static List<Provider<ForkSlot>> registerForkSlots(Project project, int forkBudget) {
+        List<Provider<ForkSlot>> slots = new ArrayList<>(forkBudget);
+        for (int idx = 0; idx < forkBudget; ++idx) {
+            slots.add(project.getGradle().getSharedServices().registerIfAbsent(SLOT_NAME + idx, ForkSlot.class,
+                    spec -> spec.getMaxParallelUsages().set(1)));
+        }
+        return slots;
+    }
+
+    /**
+     * Retrieve the file that the durations of the test tasks are persisted to
+     * @param project {@link Project} that is being built out
+     * @return {@link Provider} of the file that the durations are persisted to
+     */
+    static Provider<RegularFile> getDurationsFile(Project project) {
+        return project.getRootProject().getLayout().getBuildDirectory().file("mrjar/test-durations.properties");
+    }
+
+    /**
+     * Read the persisted durations of the test tasks
+     * @param file file that the durations are persisted to
+     * @return durations in milliseconds by the path of the test task, empty when nothing was recorded yet
+     */
+    static Map<String, Long> read(File file) {
+        Map<String, Long> durations = new HashMap<>();
+        if (!file.isFile()) {
+            return durations;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            props.load(in);
+        } catch (IOException ex) {
+            log.warn("failed to read test durations from {}", file, ex);
+            return durations;
+        }
+        for (String path : props.stringPropertyNames()) {
+            try {
+                durations.put(path, Long.parseLong(props.getProperty(path)));
+            } catch (NumberFormatException ex) {
+                // not written by this service, so ignore it
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Create a new {@link TestScheduler}
+     */
+    @Inject
+    public TestScheduler() {
+        started = new ConcurrentHashMap<>();
+        durations = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Have a test task use its forks of the budget, and record the durations of its executions
+     * @param task {@link Test} task to use the {@link TestScheduler}
+     * @param scheduler {@link Provider} of the {@link TestScheduler}
+     * @param slots {@link Provider}s of the {@link ForkSlot}s of the forks that the test task uses
+     */
+    static void schedule(Test task, Provider<TestScheduler> scheduler, List<Provider<ForkSlot>> slots) {
+        task.setMaxParallelForks(slots.size());
+        task.usesService(scheduler);
+        for (Provider<ForkSlot> slot : slots) {
+            task.usesService(slot);
+        }
+        task.doFirst(new Start(scheduler));
+    }
+
+    /**
+     * Mark the start of the execution of a test task
+     * @param path path of the test task
+     */
+    void start(String path) {
+        started.put(path, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent)) {
+            return;
+        }
+        String path = ((TaskFinishEvent) event).getDescriptor().getTaskPath();
+        // only executions are recorded, failing ones included, but not the tasks that were up to date or skipped
+        Long start = started.remove(path);
+        if (start != null) {
+            durations.put(path, Math.max(0L, event.getResult().getEndTime() - start));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (durations.isEmpty()) {
+            return;
+        }
+        File file = getParameters().getDurationsFile().getAsFile().get();
+        Map<String, Long> merged = read(file);
+        for (Map.Entry<String, Long> entry : durations.entrySet()) {
+            // average with the prior duration, so that a single unusual execution does not reorder the suites
+            Long prior = merged.get(entry.getKey());
+            merged.put(entry.getKey(), prior == null ? entry.getValue() : (prior + entry.getValue()) / 2);
+        }
+        Properties props = new Properties();
+        merged.forEach((path, duration) -> props.setProperty(path, Long.toString(duration)));
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                props.store(out, "durations of test tasks in milliseconds");
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.warn("failed to persist test durations to {}", file, ex);
+        }
+    }
+}
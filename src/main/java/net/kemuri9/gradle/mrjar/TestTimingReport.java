@@ -0,0 +1,369 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Task that compares the durations of the same test cases between the test tasks of the versions,
+ * from the JUnit XML results of the tasks, to tell whether the implementations of newer versions are actually faster.
+ * <p>
+ * Test cases are aligned by their class name and name, and the durations of each test task are compared
+ * against those of the first {@link Results}, being the "main" tests, as a percentage.
+ * A test case or test class is flagged as a regression when it is slower than that by more than
+ * {@link #getRegressionThreshold()}, unless it took less than {@link #getMinimumDuration()} to begin with,
+ * as such short durations are mostly noise. The comparison is written as {@code index.html} and {@code timings.json}.
+ */
+@DisableCachingByDefault(because = "Not worth caching")
+public abstract class TestTimingReport extends DefaultTask {
+
+    /**
+     * JUnit XML results of a test task
+     */
+    public static abstract class Results {
+
+        /**
+         * Create a new {@link Results}
+         */
+        @Inject
+        public Results() {}
+
+        /**
+         * Feature release of Java that the test task executes with
+         * @return {@link Property} of the feature release of Java of the test task
+         */
+        @Input
+        public abstract Property<Integer> getRelease();
+
+        /**
+         * Directories of the JUnit XML results of the test task
+         * @return {@link ConfigurableFileCollection} of the directories of the JUnit XML results
+         */
+        @InputFiles
+        @IgnoreEmptyDirectories
+        @PathSensitive(PathSensitivity.NONE)
+        public abstract ConfigurableFileCollection getReports();
+
+        /**
+         * Name of the test task
+         * @return {@link Property} of the name of the test task
+         */
+        @Input
+        public abstract Property<String> getTaskName();
+    }
+
+    /** durations of an aligned test case or test class, in milliseconds, by the name of the test task */
+    private static final class Timing {
+        final String className;
+        final String name;
+        final Map<String, Long> durations = new LinkedHashMap<>();
+        /** durations of the first test task to compare the durations of each other test task against */
+        final Map<String, Long> baselines = new LinkedHashMap<>();
+
+        Timing(String className, String name) {
+            this.className = className;
+            this.name = name;
+        }
+    }
+
+    private final List<Results> results;
+
+    /**
+     * Create a new {@link TestTimingReport}
+     */
+    @Inject
+    public TestTimingReport() {
+        results = new ArrayList<>();
+        getMinimumDuration().convention(10L);
+        getRegressionThreshold().convention(10.0);
+    }
+
+    /**
+     * Directory that the report is written to
+     * @return {@link DirectoryProperty} of the directory that the report is written to
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDirectory();
+
+    /**
+     * Duration in milliseconds that a test case or test class of the first {@link Results} needs to take,
+     * for it to be flagged as a regression. Defaults to {@code 10}
+     * @return {@link Property} of the minimum duration in milliseconds of a regression
+     */
+    @Input
+    public abstract Property<Long> getMinimumDuration();
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+    /**
+     * Percentage that a test case or test class needs to be slower than in the first {@link Results},
+     * for it to be flagged as a regression. Defaults to {@code 10}
+     * @return {@link Property} of the percentage of a regression
+     */
+    @Input
+    public abstract Property<Double> getRegressionThreshold();
+
+    /**
+     * {@link Results} of the test tasks to compare, with the first being compared against
+     * @return {@link Results} of the test tasks to compare
+     */
+    @Nested
+    public List<Results> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Add the {@link Results} of a test task to compare
+     * @param configure {@link Action} to configure the {@link Results} with
+     * @return {@link Results} that was added
+     */
+    public Results results(Action<? super Results> configure) {
+        Results added = getObjects().newInstance(Results.class);
+        configure.execute(added);
+        results.add(added);
+        return added;
+    }
+
+    @TaskAction
+    void execute() throws IOException {
+        List<String> tasks = new ArrayList<>();
+        Map<String, Integer> releases = new LinkedHashMap<>();
+        Map<String, Timing> cases = new TreeMap<>();
+        Map<String, Timing> classes = new TreeMap<>();
+        for (Results result : results) {
+            String task = result.getTaskName().get();
+            tasks.add(task);
+            releases.put(task, result.getRelease().get());
+            for (File file : result.getReports().getAsFileTree().matching(filter -> filter.include("**/*.xml"))) {
+                readResults(file, task, cases);
+            }
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        String baseline = tasks.get(0);
+
+        // a class is only compared by the test cases that both test tasks executed
+        for (Timing timing : cases.values()) {
+            Timing classTiming = classes.computeIfAbsent(timing.className, (String name)-> new Timing(name, null));
+            Long base = timing.durations.get(baseline);
+            if (base == null) {
+                continue;
+            }
+            classTiming.durations.merge(baseline, base, Long::sum);
+            for (Map.Entry<String, Long> entry : timing.durations.entrySet()) {
+                if (!entry.getKey().equals(baseline)) {
+                    timing.baselines.put(entry.getKey(), base);
+                    classTiming.durations.merge(entry.getKey(), entry.getValue(), Long::sum);
+                    classTiming.baselines.merge(entry.getKey(), base, Long::sum);
+                }
+            }
+        }
+
+        File destination = getDestinationDirectory().get().getAsFile();
+        Files.createDirectories(destination.toPath());
+        List<String> regressions = new ArrayList<>();
+        StringBuilder json = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        json.append("{\n  \"baseline\": ").append(quote(baseline))
+            .append(",\n  \"regressionThreshold\": ").append(getRegressionThreshold().get())
+            .append(",\n  \"minimumDuration\": ").append(getMinimumDuration().get())
+            .append(",\n  \"tasks\": [");
+        for (int idx = 0; idx < tasks.size(); ++idx) {
+            json.append(idx == 0 ? "\n" : ",\n").append("    {\"task\": ").append(quote(tasks.get(idx)))
+                .append(", \"release\": ").append(releases.get(tasks.get(idx))).append('}');
+        }
+        json.append("\n  ],\n  \"classes\": [");
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Test timings by Java version</title>\n")
+            .append("<style>table{border-collapse:collapse}td,th{border:1px solid #ccc;padding:2px 6px}")
+            .append("td.duration{text-align:right}.regression{background:#f8d0d0}.improvement{background:#d0f0d0}</style>\n")
+            .append("</head>\n<body>\n<h1>Test timings by Java version</h1>\n<p>Durations in milliseconds, compared against ")
+            .append(escape(baseline)).append(". Regressions are slower by more than ").append(getRegressionThreshold().get())
+            .append("%.</p>\n<h2>Classes</h2>\n");
+        appendTable(html, json, tasks, baseline, classes.values(), true, regressions);
+        json.append("\n  ],\n  \"tests\": [");
+        html.append("<h2>Tests</h2>\n");
+        appendTable(html, json, tasks, baseline, cases.values(), false, regressions);
+        json.append("\n  ],\n  \"regressions\": ").append(regressions.size()).append("\n}\n");
+        html.append("</body>\n</html>\n");
+
+        Files.write(new File(destination, "timings.json").toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        File index = new File(destination, "index.html");
+        Files.write(index.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+        if (regressions.isEmpty()) {
+            getLogger().info("{} found no regressions, see {}", getPath(), index.toURI());
+        } else {
+            getLogger().lifecycle("{} found {} regressions over {}%: {}, see {}", getPath(), regressions.size(),
+                    getRegressionThreshold().get(), regressions, index.toURI());
+        }
+    }
+
+    private void appendTable(StringBuilder html, StringBuilder json, List<String> tasks, String baseline,
+            Iterable<Timing> timings, boolean isClass, List<String> regressions) {
+        html.append("<table>\n<tr><th>").append(isClass ? "Class" : "Test").append("</th>");
+        for (String task : tasks) {
+            html.append("<th>").append(escape(task)).append("</th>");
+            if (!task.equals(baseline)) {
+                html.append("<th>&Delta; %</th>");
+            }
+        }
+        html.append("</tr>\n");
+        boolean first = true;
+        for (Timing timing : timings) {
+            String label = isClass ? timing.className : timing.className + "." + timing.name;
+            json.append(first ? "\n" : ",\n").append("    {\"class\": ").append(quote(timing.className));
+            if (!isClass) {
+                json.append(", \"name\": ").append(quote(timing.name));
+            }
+            first = false;
+            StringBuilder durations = new StringBuilder();
+            StringBuilder deltas = new StringBuilder();
+            List<String> regressed = new ArrayList<>();
+            html.append("<tr><td>").append(escape(label)).append("</td>");
+            for (String task : tasks) {
+                Long duration = timing.durations.get(task);
+                Long base = timing.baselines.get(task);
+                if (duration != null) {
+                    durations.append(durations.length() == 0 ? "" : ", ").append(quote(task)).append(": ").append(duration);
+                }
+                html.append("<td class=\"duration\">").append(duration == null ? "" : duration).append("</td>");
+                if (task.equals(baseline)) {
+                    continue;
+                }
+                Double delta = (duration == null || base == null || base == 0) ? null : (duration - base) * 100.0 / base;
+                String css = "";
+                if (delta != null) {
+                    deltas.append(deltas.length() == 0 ? "" : ", ").append(quote(task)).append(": ")
+                        .append(String.format(Locale.ROOT, "%.1f", delta));
+                    if (delta > getRegressionThreshold().get() && base >= getMinimumDuration().get()) {
+                        regressed.add(task);
+                        regressions.add(label + " on " + task);
+                        css = " regression";
+                    } else if (delta < -getRegressionThreshold().get()) {
+                        css = " improvement";
+                    }
+                }
+                html.append("<td class=\"duration").append(css).append("\">")
+                    .append(delta == null ? "" : String.format(Locale.ROOT, "%+.1f", delta)).append("</td>");
+            }
+            html.append("</tr>\n");
+            json.append(", \"durations\": {").append(durations).append("}, \"deltas\": {").append(deltas)
+                .append("}, \"regressions\": [");
+            for (int idx = 0; idx < regressed.size(); ++idx) {
+                json.append(idx == 0 ? "" : ", ").append(quote(regressed.get(idx)));
+            }
+            json.append("]}");
+        }
+        html.append("</table>\n");
+    }
+
+    /**
+     * Read the durations of the test cases of a JUnit XML results file.
+     * Test cases that were skipped are not read, and test cases of the same name are summed.
+     */
+    private static void readResults(File file, String task, Map<String, Timing> cases) {
+        Document document;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            document = builder.parse(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to read test results from " + file, ex);
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IllegalStateException("failed to parse test results from " + file, ex);
+        }
+        NodeList testCases = document.getElementsByTagName("testcase");
+        for (int idx = 0; idx < testCases.getLength(); ++idx) {
+            Element testCase = (Element) testCases.item(idx);
+            if (testCase.getElementsByTagName("skipped").getLength() > 0) {
+                continue;
+            }
+            String className = testCase.getAttribute("classname");
+            String name = testCase.getAttribute("name");
+            long duration;
+            try {
+                duration = Math.round(Double.parseDouble(testCase.getAttribute("time")) * 1000);
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            cases.computeIfAbsent(className + "\0" + name, (String key)-> new Timing(className, name))
+                .durations.merge(task, duration, Long::sum);
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char ch : value.toCharArray()) {
+            switch (ch) {
+            case '"': quoted.append("\\\""); break;
+            case '\\': quoted.append("\\\\"); break;
+            case '\n': quoted.append("\\n"); break;
+            case '\r': quoted.append("\\r"); break;
+            case '\t': quoted.append("\\t"); break;
+            default:
+                if (ch < 0x20) {
+                    quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+                } else {
+                    quoted.append(ch);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
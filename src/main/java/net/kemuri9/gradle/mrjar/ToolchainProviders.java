@@ -0,0 +1,99 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.gradle.api.Action;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.jvm.toolchain.JavaCompiler;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+import org.gradle.jvm.toolchain.JavaToolchainSpec;
+import org.gradle.jvm.toolchain.JavadocTool;
+
+/**
+ * Retains the toolchain {@link Provider}s of each tool and version of Java for a {@link Project},
+ * so that every task of the project that uses the same tool of the same version shares a single {@link Provider},
+ * and the toolchain is only queried once rather than once per task.
+ * The {@link Provider}s are not shared between projects, as each is queried from the {@link JavaToolchainService}
+ * of its own project.
+ */
+public class ToolchainProviders {
+
+    /**
+     * Retrieve the {@link ToolchainProviders} of the project
+     * @param project {@link Project} that is being built out
+     * @return {@link ToolchainProviders} of the project
+     */
+    public static ToolchainProviders get(Project project) {
+        return Utils.getExtension(project).toolchainProviders;
+    }
+
+    private static Action<JavaToolchainSpec> spec(JavaVersion version) {
+        return configure -> configure.getLanguageVersion().set(JavaLanguageVersion.of(version.getMajorVersion()));
+    }
+
+    private final Map<String, Provider<?>> providers;
+
+    /**
+     * Create a new {@link ToolchainProviders}
+     */
+    ToolchainProviders() {
+        providers = new HashMap<>();
+    }
+
+    /**
+     * Retrieve the {@link JavaCompiler} of a version of Java
+     * @param javaToolchains {@link JavaToolchainService} of the project to query the toolchain from when not yet retained
+     * @param version version of Java to retrieve the {@link JavaCompiler} of
+     * @return {@link Provider} of the {@link JavaCompiler}
+     */
+    public Provider<JavaCompiler> compilerFor(JavaToolchainService javaToolchains, JavaVersion version) {
+        return get("compiler", version, spec -> javaToolchains.compilerFor(spec));
+    }
+
+    /**
+     * Retrieve the {@link JavadocTool} of a version of Java
+     * @param javaToolchains {@link JavaToolchainService} of the project to query the toolchain from when not yet retained
+     * @param version version of Java to retrieve the {@link JavadocTool} of
+     * @return {@link Provider} of the {@link JavadocTool}
+     */
+    public Provider<JavadocTool> javadocToolFor(JavaToolchainService javaToolchains, JavaVersion version) {
+        return get("javadoc", version, spec -> javaToolchains.javadocToolFor(spec));
+    }
+
+    /**
+     * Retrieve the {@link JavaLauncher} of a version of Java
+     * @param javaToolchains {@link JavaToolchainService} of the project to query the toolchain from when not yet retained
+     * @param version version of Java to retrieve the {@link JavaLauncher} of
+     * @return {@link Provider} of the {@link JavaLauncher}
+     */
+    public Provider<JavaLauncher> launcherFor(JavaToolchainService javaToolchains, JavaVersion version) {
+        return get("launcher", version, spec -> javaToolchains.launcherFor(spec));
+    }
+
+    private synchronized <T> Provider<T> get(String tool, JavaVersion version,
+            Function<Action<JavaToolchainSpec>, Provider<T>> query) {
+        return Utils.cast(providers.computeIfAbsent(tool + ':' + version.getMajorVersion(),
+                (String ignored)-> query.apply(spec(version))));
+    }
+}
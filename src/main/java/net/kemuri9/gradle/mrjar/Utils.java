@@ -18,18 +18,19 @@ package net.kemuri9.gradle.mrjar;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
 import org.gradle.api.UnknownTaskException;
-import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.plugins.DslObject;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
@@ -40,7 +41,6 @@ import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.jvm.JavaModuleDetector;
 import org.gradle.internal.reflect.Instantiator;
-import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.jetbrains.annotations.NotNull;
@@ -54,48 +54,54 @@ final class Utils {
 
     private static final Logger log = LoggerFactory.getLogger(Utils.class);
 
-    static Modularity calculateModularity(SourceSet set) {
+    static Modularity calculateModularity(Project project, SourceSet set) {
         boolean isModule = JavaModuleDetector.isModuleSource(true, set.getAllJava().getSourceDirectories());
         if (!isModule) {
             return new Modularity(Modularity.State.NOT_MODULE);
         }
         // try and determine the module name from the file
+        SourceScanCache cache = SourceScanCache.get(project);
         String moduleName = null;
         for (File sourceDir : set.getAllJava().getSourceDirectories()) {
             Path moduleInfo = sourceDir.toPath().resolve("module-info.java");
             if (!Files.exists(moduleInfo)) {
                 continue;
             }
-            moduleName = ModuleReader.readModuleName(moduleInfo);
+            if (cache.isUntracked()) {
+                String compiledName = ModuleClassReader.readModuleName(set.getOutput().getClassesDirs(), moduleInfo);
+                moduleName = (compiledName != null) ? compiledName : cache.readModuleName(moduleInfo);
+            } else {
+                /* the configuration cache needs to be invalidated when the name changes,
+                 * which it does not detect on its own as the name may not be read from the sources */
+                moduleName = project.getProviders().of(ModuleNameSource.class, spec -> {
+                    spec.getParameters().getModuleInfo().set(moduleInfo.toFile());
+                    spec.getParameters().getClassesDirs().from(set.getOutput().getClassesDirs().getFiles());
+                }).getOrNull();
+            }
         }
         return new Modularity(Modularity.State.IS_MODULE, moduleName);
     }
 
-    @SuppressWarnings("unchecked")
-    static <T> T cast(Object o) {
-        return (T) o;
-    }
-
-    static FileCollection fileCollectionAdd(FileCollection base, FileCollection... add) {
-        return fileCollectionAdd(base, Arrays.asList(add));
-    }
-
-    static FileCollection fileCollectionAdd(FileCollection base, Iterable<FileCollection> add) {
-        for (FileCollection plus : add) {
-            base = base.plus(plus);
+    /**
+     * Retrieve the {@link Modularity} of the {@link SourceSet}, calculating it on first request.
+     * Only source sets that are part of a version request this, so unrelated source sets are never probed.
+     * @param project {@link Project} that is being built out
+     * @param set {@link SourceSet} to retrieve the {@link Modularity} of
+     * @return {@link Modularity} of the {@link SourceSet}
+     */
+    static Modularity getModularity(Project project, SourceSet set) {
+        ExtensionContainer exts = new DslObject(set).getExtensions();
+        Modularity modularity = exts.findByType(Modularity.class);
+        if (modularity == null) {
+            modularity = calculateModularity(project, set);
+            exts.add("modularity", modularity);
         }
-        return base;
+        return modularity;
     }
 
-    static FileCollection fileCollectionMinus(FileCollection base, FileCollection... minus) {
-        return fileCollectionMinus(base, Arrays.asList(minus));
-    }
-
-    static FileCollection fileCollectionMinus(FileCollection base, Iterable<FileCollection> minus) {
-        for (FileCollection subtract : minus) {
-            base = base.minus(subtract);
-        }
-        return base;
+    @SuppressWarnings("unchecked")
+    static <T> T cast(Object o) {
+        return (T) o;
     }
 
     static Set<String> filterLanguages(Project project, SourceSet set, Collection<String> langs) {
@@ -111,7 +117,7 @@ final class Utils {
             }
             try {
                 lang.getCompilerHandler().getTask(project, set);
-            } catch (ClassCastException | UnknownTaskException ex) {
+            } catch (InvalidUserDataException | UnknownTaskException ex) {
                 // task does not exist
                 langIter.remove();
             }
@@ -160,6 +166,21 @@ final class Utils {
         return (SourceSetContainer) project.getExtensions().getByName("sourceSets");
     }
 
+    /**
+     * Determine the version of Java of the toolchain that compiles a version
+     * @param project {@link Project} that is being built out
+     * @param useToolchain state of the version using its version-specific toolchain
+     * @param version version of Java that is compiled
+     * @return version of Java of the toolchain, {@code null} when compiled by the current JVM
+     */
+    static JavaVersion getCompilerToolchainVersion(Project project, boolean useToolchain, JavaVersion version) {
+        JavaVersion compilerVersion = getExtension(project).getSingleCompilerVersion();
+        if (compilerVersion != null) {
+            return (compilerVersion != JavaVersion.current()) ? compilerVersion : null;
+        }
+        return useToolchain ? version : null;
+    }
+
     static JavaToolchainService getToolchains(Project project) {
         return (JavaToolchainService) project.getExtensions().getByName("javaToolchains");
     }
@@ -185,10 +206,17 @@ final class Utils {
         return value;
     }
 
+    private static <T extends DefaultTask> void setToolchain(TaskHandler<T> handler, T task,
+            JavaToolchainService javaToolchains, JavaVersion version) {
+        try {
+            handler.setToolchain(task, javaToolchains, version);
+        } catch (IllegalStateException ex) {
+            log.error("failed to set toolchain for {}", task);
+        }
+    }
+
     static void setLauncher(Test test, JavaToolchainService javaToolchains, JavaVersion version) {
-        Provider<JavaLauncher> launcher = javaToolchains.launcherFor((l)-> {
-            l.getLanguageVersion().set(JavaLanguageVersion.of(version.getMajorVersion()));
-        });
+        Provider<JavaLauncher> launcher = ToolchainProviders.get(test.getProject()).launcherFor(javaToolchains, version);
         try {
             test.getJavaLauncher().set(launcher);
         } catch (IllegalStateException ex) {
@@ -200,29 +228,39 @@ final class Utils {
             SourceSet sourceSet, Modularity modularity, boolean useToolchain, JavaVersion version) {
         MRJarExtensionImpl ext = getExtension(project);
         Set<String> usedLangs = filterLanguages(project, sourceSet, ext.languages.keySet());
+        // compilations of every version may share a single compiler
+        JavaVersion compilerVersion = ext.getSingleCompilerVersion();
         for (String usedLangName : usedLangs) {
             LanguageSupport usedLang = ext.languages.get(usedLangName);
             setOptions(project, javaToolchains, sourceSet,
-                    cast(usedLang.getCompilerHandler()), useToolchain, modularity, version);
+                    cast(usedLang.getCompilerHandler()), useToolchain, modularity, version, compilerVersion);
         }
     }
 
     static <T extends DefaultTask> void setOptions(Project project, JavaToolchainService javaToolchains, SourceSet sourceSet,
             TaskHandler<T> handler, boolean useToolchain, Modularity modularity, JavaVersion version) {
-        T task = handler.getTask(project, sourceSet);
-        if (version != null) {
-            handler.setVersionOptions(task, version);
-        }
+        setOptions(project, javaToolchains, sourceSet, handler, useToolchain, modularity, version, null);
+    }
 
-        if (useToolchain && version != null) {
-            try {
-                handler.setToolchain(task, javaToolchains, version);
-            } catch (IllegalStateException ex) {
-                log.error("failed to set toolchain for {}", task);
+    private static <T extends DefaultTask> void setOptions(Project project, JavaToolchainService javaToolchains,
+            SourceSet sourceSet, TaskHandler<T> handler, boolean useToolchain, Modularity modularity,
+            JavaVersion version, JavaVersion compilerVersion) {
+        handler.getTask(project, sourceSet).configure(task -> {
+            if (version != null && compilerVersion != null) {
+                // the single compiler targets the version, and is only a toolchain when it is not the current JVM
+                handler.setReleaseOptions(task, version, compilerVersion);
+                if (compilerVersion != JavaVersion.current()) {
+                    setToolchain(handler, task, javaToolchains, compilerVersion);
+                }
+            } else if (version != null) {
+                handler.setVersionOptions(task, version);
+                if (useToolchain) {
+                    setToolchain(handler, task, javaToolchains, version);
+                }
             }
-        }
-        if (modularity != null) {
-            handler.setModularity(task, modularity);
-        }
+            if (modularity != null) {
+                handler.setModularity(task, modularity);
+            }
+        });
     }
 }
@@ -25,6 +25,14 @@ import org.gradle.api.tasks.Input;
  */
 public interface Version {
 
+    /**
+     * Maximum heap size of the forked compilers of the toolchain that the version is compiled with, such as {@code 512m}.
+     * Overrides behavior from {@link MRJarExtension#getCompilerMaxHeapSize()}
+     * @return {@link Property} for the maximum heap size of the forked compilers
+     */
+    @Input
+    Property<String> getCompilerMaxHeapSize();
+
     /**
      * State of the tests for the version also including the "main" tests.
      * Overrides behavior from {@link MRJarExtension#getIncludeBaseTests()}
@@ -41,6 +49,16 @@ public interface Version {
     @Input
     Property<Boolean> getPrimaryModuleDefinition();
 
+    /**
+     * State of the tests utilizing a directory of the contents that the version resolves from the Jar,
+     * instead of the Jar itself. This retains the multi-release behaviors of {@link #getUseJarInTests()},
+     * without having to assemble the Jar each time the tests execute.
+     * Overrides behavior from {@link MRJarExtension#getUseExplodedJarInTests()}
+     * @return {@link Property} for the state of the tests using the exploded Jar in testing.
+     */
+    @Input
+    Property<Boolean> getUseExplodedJarInTests();
+
     /**
      * State of the tests utilizing the Jar instead of the class files directly.
      * For some scenarios where module definitions are provided, the version of a class file desired to be
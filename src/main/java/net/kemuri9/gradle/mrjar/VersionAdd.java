@@ -15,15 +15,21 @@
  */
 package net.kemuri9.gradle.mrjar;
 
+import java.io.File;
+
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.JavaBasePlugin;
+import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.testing.Test;
 
 /**
@@ -31,6 +37,9 @@ import org.gradle.api.tasks.testing.Test;
  */
 class VersionAdd extends VersionCommon {
 
+    /** Gradle property that executes all "main" tests for every version, regardless of selecting them */
+    static final String ALL_BASE_TESTS_PROPERTY = "mrjar.allBaseTests";
+
     private final JavaVersion javaVersion;
     private final Property<Boolean> includeBaseTests;
 
@@ -51,6 +60,25 @@ class VersionAdd extends VersionCommon {
         return Utils.getIsProperty(includeBaseTests, Utils.getExtension(project).getIncludeBaseTests(), false);
     }
 
+    @Override
+    boolean isSkippedAsEmpty(String name) {
+        if (skippedSources.containsKey(name)) {
+            return true;
+        }
+        if (!Utils.getExtension(project).getSkipEmptyVersions().getOrElse(Boolean.FALSE)) {
+            return false;
+        }
+        File directory = project.file("src/java" + javaVersion.getMajorVersion() + name);
+        // as a value source the configuration cache is invalidated once sources are added
+        boolean present = project.getProviders().of(SourcesPresentSource.class,
+                spec -> spec.getParameters().getDirectory().set(directory)).get();
+        if (!present) {
+            project.getLogger().info("skipping the empty sources of {}", directory);
+            skippedSources.put(name, factory.newInstance(SkippedVersionSource.class, this, directory));
+        }
+        return !present;
+    }
+
     @Override
     String getTestName() {
         return "java" + javaVersion.getMajorVersion() + "Test";
@@ -76,18 +104,53 @@ class VersionAdd extends VersionCommon {
     protected void registerTestIfApplicable() {
         SourceSetContainer sourceSets = Utils.getSourceSets(project);
         if (getIncludesBaseTests()) {
-            Test baseTest = (Test) project.getTasks().getByName("test");
             if (test == null) {
                 // there is no test code, so the test task needs to be created based on the "main" test code.
                 registerTest(sourceSets.getByName(SourceSet.TEST_SOURCE_SET_NAME));
+            } else {
+                // add the "main" test code to the test classes dirs, as the test is not based on main already
+                TaskProvider<Test> baseTest = project.getTasks().named(JavaPlugin.TEST_TASK_NAME, Test.class);
+                project.getTasks().named(getTestName(), Test.class).configure(versionTest ->
+                    FlatFileCollections.append(versionTest, "testClassesDirs", versionTest.getTestClassesDirs(),
+                            versionTest::setTestClassesDirs, baseTest.get().getTestClassesDirs()));
             }
+            if (Utils.getExtension(project).getSelectBaseTests().getOrElse(Boolean.FALSE)
+                    && !Boolean.parseBoolean(project.getProviders().gradleProperty(ALL_BASE_TESTS_PROPERTY).getOrElse("false"))) {
+                selectBaseTests();
+            }
+        }
+    }
 
-            Test versionTest = (Test) project.getTasks().getByName(getTestName());
-            // add the "main" test code to the test classes dirs, if the test is not based on main already
+    /**
+     * Only execute the "main" tests that reach a class which this version overrides
+     */
+    private void selectBaseTests() {
+        SourceSetContainer sourceSets = Utils.getSourceSets(project);
+        String verNum = javaVersion.getMajorVersion();
+        TaskProvider<BaseTestSelection> selection = project.getTasks().register("java" + verNum + "BaseTestSelection",
+                BaseTestSelection.class, task -> {
+            task.setDescription("Selects the main tests that reach classes overridden by java " + verNum + ".");
+            task.getBaseClasses().from(sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME).getOutput().getClassesDirs());
+            task.getBaseTestClasses().from(sourceSets.getByName(SourceSet.TEST_SOURCE_SET_NAME).getOutput().getClassesDirs());
+            // the classes of this version, and of the lower versions that it resolves from the jar
+            for (JavaVersion version : Utils.getExtension(project).getVersions().keySet()) {
+                SourceSet verSource = version.compareTo(javaVersion) <= 0
+                        ? sourceSets.findByName("java" + version.getMajorVersion()) : null;
+                if (verSource != null) {
+                    task.getVersionClasses().from(verSource.getOutput().getClassesDirs());
+                }
+            }
             if (test != null) {
-                FileCollection testClassesDirs = Utils.fileCollectionAdd(versionTest.getTestClassesDirs(), baseTest.getTestClassesDirs());
-                versionTest.setTestClassesDirs(testClassesDirs);
+                task.getVersionTestClasses().from(test.sourceSet.getOutput().getClassesDirs());
             }
-        }
+            task.getExcludedTests().set(project.getLayout().getBuildDirectory()
+                    .file("mrjar/baseTestSelection/java" + verNum + ".txt"));
+        });
+        project.getTasks().named(getTestName(), Test.class).configure(versionTest -> {
+            Provider<RegularFile> excludedTests = selection.flatMap(BaseTestSelection::getExcludedTests);
+            versionTest.getInputs().file(excludedTests).withPropertyName("excludedBaseTests")
+                    .withPathSensitivity(PathSensitivity.NONE);
+            versionTest.exclude(new BaseTestSelection.Exclusion(excludedTests));
+        });
     }
 }
@@ -15,17 +15,25 @@
  */
 package net.kemuri9.gradle.mrjar;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import org.gradle.api.Action;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemLocation;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
 import org.gradle.api.tasks.testing.Test;
 
@@ -34,29 +42,42 @@ import org.gradle.api.tasks.testing.Test;
  */
 abstract class VersionCommon implements Version {
 
+    protected final Property<String> compilerMaxHeapSize;
     protected final ObjectFactory factory;
 
     protected final Property<Boolean> primaryModuleDefinition;
     final Project project;
+    protected final Property<Boolean> useExplodedJarInTests;
     protected final Property<Boolean> useJarInTests;
     protected final Property<Boolean> useToolchain;
 
     VersionSourceImpl main;
     VersionSourceImpl test;
+    /** sources that are skipped as they are empty, by name of the sources */
+    final Map<String, SkippedVersionSource> skippedSources;
 
     @javax.inject.Inject
     protected VersionCommon(Project project, ObjectFactory factory) {
+        this.compilerMaxHeapSize = factory.property(String.class);
         this.factory = factory;
         this.project = project;
+        this.useExplodedJarInTests = factory.property(Boolean.class);
         this.useJarInTests = factory.property(Boolean.class);
         this.useToolchain = factory.property(Boolean.class);
         this.primaryModuleDefinition = factory.property(Boolean.class);
+        this.skippedSources = new HashMap<>();
     }
 
     abstract boolean getIncludesBaseTests();
 
+    boolean getIsUseExplodedJarInTests() {
+        return Utils.getIsProperty(useExplodedJarInTests, Utils.getExtension(project).getUseExplodedJarInTests(), false);
+    }
+
     boolean getIsUseJarInTests() {
-        return Utils.getIsProperty(useJarInTests, Utils.getExtension(project).getUseJarInTests(), false);
+        // the exploded jar is a form of the jar
+        return getIsUseExplodedJarInTests()
+                || Utils.getIsProperty(useJarInTests, Utils.getExtension(project).getUseJarInTests(), false);
     }
 
     boolean getIsUseToolchain() {
@@ -68,11 +89,21 @@ abstract class VersionCommon implements Version {
         return Utils.getIsProperty(useToolchain, Utils.getExtension(project).getUseToolchain(), false);
     }
 
+    @Override
+    public Property<String> getCompilerMaxHeapSize() {
+        return compilerMaxHeapSize;
+    }
+
     @Override
     public Property<Boolean> getPrimaryModuleDefinition() {
         return primaryModuleDefinition;
     }
 
+    @Override
+    public Property<Boolean> getUseExplodedJarInTests() {
+        return useExplodedJarInTests;
+    }
+
     @Override
     public Property<Boolean> getUseJarInTests() {
         return useJarInTests;
@@ -85,10 +116,24 @@ abstract class VersionCommon implements Version {
 
     abstract String getTestName();
 
+    /**
+     * Determine whether sources of the version are to be skipped, as they are empty
+     * @param name name of the sources, empty for the "main" sources
+     * @return {@code true} when the sources are skipped
+     */
+    boolean isSkippedAsEmpty(String name) {
+        return false;
+    }
+
     @Override
     public void main(Action<VersionSource> configure) {
         Utils.notNull(configure, "configure");
         if (main == null) {
+            if (isSkippedAsEmpty("")) {
+                // still configured, to record the dependencies that the skipped sources pass on
+                configure.execute(skippedSources.get(""));
+                return;
+            }
             main = factory.newInstance(VersionSourceImpl.class, this, "");
         }
         configure.execute(main);
@@ -103,32 +148,36 @@ abstract class VersionCommon implements Version {
         }
 
         registerTestIfApplicable();
-        Test versionTest = (Test) project.getTasks().findByName(getTestName());
-        if (versionTest == null) {
+        if (!project.getTasks().getNames().contains(getTestName())) {
             // no test to configure, skip all further processing
             return;
         }
 
-        if (getIsUseToolchain()) {
-            // use toolchain
-            Utils.setLauncher(versionTest, Utils.getToolchains(project), getVersion());
-        }
-
-        if (getIsUseJarInTests()) {
-            // adjust the classpath to remove all src source sets
-            FileCollection testClasspath = versionTest.getClasspath();
-
-            SourceSetContainer sourceSets = Utils.getSourceSets(project);
-            List<FileCollection> srcOutputs = sourceSets.stream().filter(set -> !Utils.isTestSource(set))
-                    .map(set -> set.getOutput().getClassesDirs()).collect(Collectors.toList());
-            testClasspath = Utils.fileCollectionMinus(testClasspath, srcOutputs);
-
-            // add the jar in the place of the removed source sets
-            Jar jar = (Jar) project.getTasks().getByName("jar");
-            testClasspath = testClasspath.plus(project.files(jar.getArchiveFile().get().getAsFile().getAbsoluteFile()));
-            versionTest.dependsOn(jar);
-            versionTest.setClasspath(testClasspath);
-        }
+        boolean useToolchain = getIsUseToolchain();
+        boolean useJarInTests = getIsUseJarInTests();
+        TaskProvider<ExplodedMultiReleaseJar> explodedJar = getIsUseExplodedJarInTests()
+                ? Utils.getExtension(project).getExplodedJar(getVersion()) : null;
+        project.getTasks().named(getTestName(), Test.class).configure(versionTest -> {
+            if (useToolchain) {
+                // use toolchain
+                Utils.setLauncher(versionTest, Utils.getToolchains(project), getVersion());
+            }
+
+            if (useJarInTests) {
+                /* replace the classes of all src source sets with the jar. Nothing of it is evaluated until the
+                 * classpath is, and the task outputs carry the dependencies on the tasks that produce the jar */
+                SourceSetContainer sourceSets = Utils.getSourceSets(project);
+                FileCollection srcOutputs = project.files((Callable<List<FileCollection>>) () -> sourceSets.stream()
+                        .filter(set -> !Utils.isTestSource(set))
+                        .map(set -> set.getOutput().getClassesDirs()).collect(Collectors.toList()));
+                Provider<? extends FileSystemLocation> jar = (explodedJar != null)
+                        ? explodedJar.flatMap(ExplodedMultiReleaseJar::getDestinationDirectory)
+                        : project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class).flatMap(Jar::getArchiveFile);
+                ConfigurableFileCollection testClasspath = project.getObjects().fileCollection();
+                testClasspath.from(versionTest.getClasspath().minus(srcOutputs), jar);
+                versionTest.setClasspath(testClasspath);
+            }
+        });
     }
 
     protected void registerTest(SourceSet set) {}
@@ -139,6 +188,10 @@ abstract class VersionCommon implements Version {
     public void test(Action<VersionSource> configure) {
         Utils.notNull(configure, "configure");
         if (test == null) {
+            if (isSkippedAsEmpty("Test")) {
+                configure.execute(skippedSources.get("Test"));
+                return;
+            }
             test = factory.newInstance(VersionSourceImpl.class, this, "Test");
             // register that there is test code to execute for
             registerTest(test.sourceSet);
@@ -36,15 +36,16 @@ import org.gradle.api.attributes.java.TargetJvmVersion;
 import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.internal.AbstractValidatingNamedDomainObjectContainer;
 import org.gradle.api.internal.CollectionCallbackActionDecorator;
-import org.gradle.api.internal.plugins.DslObject;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.plugins.internal.JvmPluginsHelper;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.testing.Test;
@@ -143,16 +144,22 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
         LanguageSupport.CompileHandler<AC> compileHandler = Utils.cast(lang.getCompilerHandler());
         // if there is documentation configured for the source then also add the sources to it
         LanguageSupport.DocumentationHandler<DOC> docHandler = Utils.cast(getDocHandler(lang, configuredLang));
-        AC compile = compileHandler.getTask(project, sourceSet);
+        TaskProvider<AC> compile = compileHandler.getTask(project, sourceSet);
         // if there is a doc task, then it needs to have the source added
-        DOC doc = (docHandler == null) ? null : docHandler.getTask(project, sourceSet);
-        Modularity compileMod = LanguageSupport.getTaskModularity(compile);
+        TaskProvider<DOC> doc = (docHandler == null) ? null : docHandler.getTask(project, sourceSet);
         // if a source jar is registered for the source, then add to the source jar task
-        Jar sourceJar = hasSourceJar ? (Jar) project.getTasks().getByName(sourceSet.getSourcesJarTaskName()) : null;
+        TaskProvider<Jar> sourceJar = hasSourceJar
+                ? project.getTasks().named(sourceSet.getSourcesJarTaskName(), Jar.class) : null;
         // when using the jar, then "main" sources are not depended on. but otherwise they are
-        Test test = isTest() ? (Test) project.getTasks().getByName(version.getTestName()) : null;
+        TaskProvider<Test> test = isTest() ? project.getTasks().named(version.getTestName(), Test.class) : null;
         boolean testUsesJar = version.getIsUseJarInTests();
-        Map<String, LanguageSupport> languages = Utils.getExtension(project).languages;
+        MRJarExtensionImpl mrJar = Utils.getExtension(project);
+        Map<String, LanguageSupport> languages = mrJar.languages;
+        TaskDependencyGraph graph = mrJar.taskDependencies;
+        if (test != null) {
+            // the test always depends on the compilation of its own sources through its classpath
+            graph.addEdge(test.getName(), compile.getName());
+        }
         for (SourceSet dependSource : dependSources) {
             // if there is no depends on languages, then it depends on every language
             Set<String> dependLangNames = (configuredLang != null && configuredLang.getDependsOnLanguages().isPresent())
@@ -160,33 +167,93 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
             dependLangNames = Utils.filterLanguages(project, dependSource, dependLangNames);
             for (String dependLangName : dependLangNames) {
                 LanguageSupport dependLang = languages.get(dependLangName);
-                AbstractCompile dependCompile = dependLang.getCompilerHandler().getTask(project, dependSource);
-                compileHandler.addDependency(project, compile, dependCompile);
+                TaskProvider<? extends AbstractCompile> dependCompile = dependLang.getCompilerHandler().getTask(project, dependSource);
+                /* the depended on task only needs to exist once this compilation is needed.
+                 * By then every version has been configured, so that the dependency is only declared
+                 * when it is not already implied through the other dependencies */
+                graph.addEdge(compile.getName(), dependCompile.getName());
+                compile.configure(task -> {
+                    AbstractCompile dependTask = dependCompile.get();
+                    if (!graph.isRedundant(task.getName(), dependTask.getName())) {
+                        task.dependsOn(dependTask);
+                    }
+                    compileHandler.addDependency(project, task, dependTask);
+                });
 
                 // if this is a test source and the test does not use the jar or is a test source then it needs to be added
                 if (test != null && (!testUsesJar || Utils.isTestSource(dependSource))) {
-                    test.dependsOn(dependCompile);
-                    Modularity dependsMod = LanguageSupport.getTaskModularity(dependCompile);
-                    // if the test is modular, and the dependency is a module patch, then need to add to --patch-module
-                    if (test.getModularity().getInferModulePath().get() && compileMod != null
-                            && compileMod.state == Modularity.State.IS_MODULE && dependsMod != null
-                            && dependsMod.state == Modularity.State.MODULE_PATCH) {
-                        // add patch for the output directory of the dependent
-                        PatchProvider provider = PatchProvider.getProvider(test.getJvmArgumentProviders());
-                        provider.add(dependsMod.moduleName, dependCompile.getDestinationDirectory());
-                    } else {
-                        // otherwise, can just add to the classpath
-                        test.setClasspath(test.getClasspath().plus(project.files(dependCompile.getDestinationDirectory())));
-                    }
+                    graph.addEdge(test.getName(), dependCompile.getName());
+                    test.configure(task -> addTestDependency(task, compile.get(), dependCompile.get()));
                 }
 
             }
             if (doc != null) {
-                docHandler.addSourceSet(project, doc, dependSource);
+                doc.configure(task -> docHandler.addSourceSet(project, task, dependSource));
             }
             if (sourceJar != null) {
-                sourceJar.from(dependSource.getAllSource());
+                sourceJar.configure(jar -> jar.from(dependSource.getAllSource()));
+            }
+        }
+    }
+
+    /**
+     * Add the sources of an added version that are depended on. Sources that are skipped as they are empty are
+     * replaced with the sources that they depend on, transitively, so that the dependency is not lost.
+     * @param dependSources {@link List} of {@link SourceSet}s to add to
+     * @param dependsOnVer version of Java whose sources are depended on
+     * @param name name of the sources, empty for the "main" sources
+     */
+    private void addVersionSources(List<SourceSet> dependSources, JavaVersion dependsOnVer, String name) {
+        MRJarExtensionImpl mrJar = Utils.getExtension(getProject());
+        boolean test = !name.isEmpty();
+        if (dependsOnVer == mrJar.getBaseVersion()) {
+            dependSources.add(Utils.getSourceSets(getProject())
+                    .getByName(test ? SourceSet.TEST_SOURCE_SET_NAME : SourceSet.MAIN_SOURCE_SET_NAME));
+            return;
+        }
+        VersionAdd targetVer = mrJar.getVersions().get(dependsOnVer);
+        SkippedVersionSource skipped = targetVer.skippedSources.get(name);
+        if (skipped == null) {
+            VersionSourceImpl target = test ? targetVer.test : targetVer.main;
+            if (target == null) {
+                throw new IllegalStateException("corresponding SourceSet for " + dependsOnVer + " "
+                        + (test ? "test" : "main") + " sources is not defined");
             }
+            dependSources.add(target.sourceSet);
+            return;
+        }
+        List<JavaVersion> dependVersions = new ArrayList<>(skipped.dependsOn.keySet());
+        Collections.reverse(dependVersions);
+        for (JavaVersion version : dependVersions) {
+            VersionDependencyImpl verDep = skipped.dependsOn.get(version);
+            boolean isBase = version == mrJar.getBaseVersion();
+            if (verDep.getDependsOnSource().getOrElse(Boolean.TRUE)) {
+                addVersionSources(dependSources, version, "");
+            }
+            // the same defaults apply to the dependencies of the skipped sources as if they were not skipped
+            if ((!isBase || test) && verDep.getDependsOnTest().getOrElse(isBase)) {
+                addVersionSources(dependSources, version, "Test");
+            }
+        }
+    }
+
+    private void addTestDependency(Test test, AbstractCompile compile, AbstractCompile dependCompile) {
+        if (!Utils.getExtension(getProject()).taskDependencies.isRedundant(test.getName(), dependCompile.getName())) {
+            test.dependsOn(dependCompile);
+        }
+        Modularity compileMod = LanguageSupport.getTaskModularity(compile);
+        Modularity dependsMod = LanguageSupport.getTaskModularity(dependCompile);
+        // if the test is modular, and the dependency is a module patch, then need to add to --patch-module
+        if (test.getModularity().getInferModulePath().get() && compileMod != null
+                && compileMod.state == Modularity.State.IS_MODULE && dependsMod != null
+                && dependsMod.state == Modularity.State.MODULE_PATCH) {
+            // add patch for the output directory of the dependent
+            PatchProvider provider = PatchProvider.getProvider(test.getJvmArgumentProviders());
+            provider.add(dependsMod.moduleName, dependCompile.getDestinationDirectory());
+        } else {
+            // otherwise, can just add to the classpath
+            FlatFileCollections.append(test, "classpath", test.getClasspath(), test::setClasspath,
+                    dependCompile.getDestinationDirectory());
         }
     }
 
@@ -197,11 +264,16 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
 
     @Override
     public void dependsOn(Object version, Action<VersionDependency> configure) {
-        Utils.notNull(version, "version");
-        JavaVersion dependsOnVer = JavaVersion.toVersion(version);
-        JavaVersion srcVersion = this.version.getVersion();
+        addDependency(this.version, objFactory, dependsOn, version, configure);
+    }
+
+    static void addDependency(VersionCommon version, ObjectFactory objFactory,
+            Map<JavaVersion, VersionDependencyImpl> dependsOn, Object dependsOnRaw, Action<VersionDependency> configure) {
+        Utils.notNull(dependsOnRaw, "version");
+        JavaVersion dependsOnVer = JavaVersion.toVersion(dependsOnRaw);
+        JavaVersion srcVersion = version.getVersion();
 
-        if (this.version instanceof VersionBase) {
+        if (version instanceof VersionBase) {
             throw new IllegalArgumentException("base version cannot depend on other versions");
         }
         // can only depend on prior versions, not future ones
@@ -246,13 +318,14 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
     void postConfigure() {
         Project project = getProject();
         // configure toolchains and modularity
-        Modularity modularity = new DslObject(sourceSet).getExtensions().findByType(Modularity.class);
+        Modularity modularity = Utils.getModularity(project, sourceSet);
         // but update modularity for the source set if it's a module patch
-        if (modularity != null && patchesModule.getOrNull() != null) {
+        if (patchesModule.getOrNull() != null) {
             modularity.moduleName = patchesModule.get();
             modularity.state = Modularity.State.MODULE_PATCH;
         }
         Utils.setOptions(project, javaToolchains, sourceSet, modularity, version.getIsUseToolchain(), version.getVersion());
+        limitCompilerDaemons();
 
         if (version instanceof VersionBase) {
             // no later code applies to base versions
@@ -268,21 +341,28 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
                         version.getIsUseToolchain(), modularity, version.getVersion())
         );
 
+        Set<SourceSet> dependedOn = new HashSet<>();
         // this must be done first to ensure that the most appropriate classpath is chosen when there are duplicates
         if (isTest() && version.main != null) {
             // depend on any corresponding "main" source when a "test" source
             addDependentSources(Collections.singletonList(version.main.sourceSet));
+        } else if (isTest() && version.skippedSources.containsKey("")) {
+            // or on what the corresponding "main" source depends on, when it is skipped
+            List<SourceSet> mainSources = new ArrayList<>();
+            addVersionSources(mainSources, version.getVersion(), "");
+            mainSources.removeIf(source -> !dependedOn.add(source));
+            addDependentSources(mainSources);
         }
 
         // execute in reverse order to match how multi-release jar behaves using highest versions first
         List<JavaVersion> dependVersions = new ArrayList<>(dependsOn.keySet());
         Collections.reverse(dependVersions);
         for (JavaVersion version : dependVersions) {
-            postConfigure(version, dependsOn.get(version));
+            postConfigure(version, dependsOn.get(version), dependedOn);
         }
     }
 
-    private void postConfigure(JavaVersion dependsOnVer, VersionDependencyImpl verDep) {
+    private void postConfigure(JavaVersion dependsOnVer, VersionDependencyImpl verDep, Set<SourceSet> dependedOn) {
 
         Project project = getProject();
         MRJarExtensionImpl mrJar = Utils.getExtension(project);
@@ -300,20 +380,15 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
                dependSources.add(sourceSets.getByName(SourceSet.TEST_SOURCE_SET_NAME));
            }
         } else {
-            VersionAdd targetVer = mrJar.getVersions().get(dependsOnVer);
             if (verDep.getDependsOnSource().getOrElse(Boolean.TRUE)) {
-                if (targetVer.main == null) {
-                    throw new IllegalStateException("corresponding SourceSet for " + dependsOnVer + " main sources is not defined");
-                }
-                dependSources.add(targetVer.main.sourceSet);
+                addVersionSources(dependSources, dependsOnVer, "");
             }
             if (verDep.getDependsOnTest().getOrElse(Boolean.FALSE)) {
-                if (targetVer.test == null) {
-                    throw new IllegalStateException("corresponding SourceSet for " + dependsOnVer + " test sources is not defined");
-                }
-                dependSources.add(targetVer.test.sourceSet);
+                addVersionSources(dependSources, dependsOnVer, "Test");
             }
         }
+        // sources that are reached again through the dependencies of skipped sources are already depended on
+        dependSources.removeIf(source -> !dependedOn.add(source));
 
         // extend configurations if applicable
         if (verDep.getExtendConfigurations().getOrElse(Boolean.FALSE)) {
@@ -323,6 +398,47 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
         addDependentSources(dependSources);
     }
 
+    /**
+     * Bound the number and heap of the forked compiler daemons, when compiling with a toolchain
+     * or with a language whose compiler is always forked
+     */
+    private void limitCompilerDaemons() {
+        Project project = getProject();
+        MRJarExtensionImpl mrJar = Utils.getExtension(project);
+        JavaVersion toolchainVersion = Utils.getCompilerToolchainVersion(project, version.getIsUseToolchain(),
+                version.getVersion());
+        Integer maxParallel = mrJar.getMaxParallelCompilesPerToolchain().getOrNull();
+        String maxHeapSize = version.getCompilerMaxHeapSize().getOrElse(mrJar.getCompilerMaxHeapSize().getOrNull());
+        if (maxParallel == null && maxHeapSize == null) {
+            return;
+        }
+        List<LanguageSupport.CompileHandler<AbstractCompile>> forkedHandlers = new ArrayList<>();
+        for (String usedLangName : Utils.filterLanguages(project, sourceSet, mrJar.languages.keySet())) {
+            LanguageSupport.CompileHandler<AbstractCompile> compileHandler =
+                    Utils.cast(mrJar.languages.get(usedLangName).getCompilerHandler());
+            // without a toolchain only the languages whose compiler always forks are forked, from the current JVM
+            if (toolchainVersion != null || compileHandler.isAlwaysForked()) {
+                forkedHandlers.add(compileHandler);
+            }
+        }
+        if (forkedHandlers.isEmpty()) {
+            return;
+        }
+        JavaVersion daemonVersion = (toolchainVersion == null) ? JavaVersion.current() : toolchainVersion;
+        Provider<CompilerDaemonLimit> limit = (maxParallel == null) ? null
+                : CompilerDaemonLimit.register(project, daemonVersion, maxParallel);
+        for (LanguageSupport.CompileHandler<AbstractCompile> compileHandler : forkedHandlers) {
+            compileHandler.getTask(project, sourceSet).configure(task -> {
+                if (limit != null) {
+                    task.usesService(limit);
+                }
+                if (maxHeapSize != null) {
+                    compileHandler.setMaxHeapSize(task, maxHeapSize);
+                }
+            });
+        }
+    }
+
     @Override
     public void registerSourceJar() {
         // register the source jar
@@ -335,9 +451,9 @@ class VersionSourceImpl extends AbstractValidatingNamedDomainObjectContainer<Ver
         config.getAttributes().attribute(TargetJvmVersion.TARGET_JVM_VERSION_ATTRIBUTE,
                 Integer.parseInt(version.getVersion().getMajorVersion()));
 
-        Jar sourceJar = (Jar) project.getTasks().getByName(sourceSet.getSourcesJarTaskName());
         /* and flag that duplicates should be excluded (ignored).
          * This will cause higher versions to be included and lower versions be excluded */
-        sourceJar.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE);
+        project.getTasks().named(sourceSet.getSourcesJarTaskName(), Jar.class,
+                sourceJar -> sourceJar.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE));
     }
 }
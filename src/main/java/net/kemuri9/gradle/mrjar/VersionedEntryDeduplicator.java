@@ -0,0 +1,178 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileCopyDetails;
+
+/**
+ * Omits the versioned entries of a multi-release jar that are byte-identical to the entry that the JVM
+ * would otherwise resolve, from a lower version or from the root of the jar, disregarding the class file version.
+ * Such entries only make the jar larger and lengthen the lookups of the JVM.
+ * <p>
+ * As an {@link Action} of {@link FileCopyDetails} it excludes the entries from a jar task,
+ * with the entries of lower versions being looked up from the layers of contents that make up the jar.
+ */
+final class VersionedEntryDeduplicator implements Action<FileCopyDetails> {
+
+    /** prefix of all versioned entries */
+    static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    /** lowest version that may have versioned entries */
+    private static final int MIN_VERSION = 9;
+
+    /** contents that are placed under a prefix in the jar */
+    private static final class Layer {
+        final String prefix;
+        final FileCollection contents;
+
+        Layer(String prefix, FileCollection contents) {
+            this.prefix = prefix;
+            this.contents = contents;
+        }
+    }
+
+    private final List<Layer> layers;
+    private transient Map<String, File> index;
+    private transient int omitted;
+    private transient long saved;
+
+    VersionedEntryDeduplicator() {
+        layers = new ArrayList<>();
+    }
+
+    /**
+     * Add a layer of contents of the jar, in order of precedence
+     * @param prefix prefix of the entries in the jar, or empty for the root of the jar
+     * @param contents {@link FileCollection} of the contents, named by their path relative to their root directory
+     */
+    void addLayer(String prefix, FileCollection contents) {
+        layers.add(new Layer((prefix.isEmpty() || prefix.endsWith("/")) ? prefix : prefix + "/", contents));
+    }
+
+    /**
+     * Determine the entry that the JVM resolves for a versioned entry when the versioned entry is absent
+     * @param name name of the entry
+     * @param exists {@link Predicate} indicating whether an entry exists in the jar
+     * @return name of the lower entry, or {@code null} when the entry is not versioned or there is no lower entry
+     */
+    static String getLowerEntry(String name, Predicate<String> exists) {
+        if (!name.startsWith(VERSIONS_PREFIX)) {
+            return null;
+        }
+        int versionEnd = name.indexOf('/', VERSIONS_PREFIX.length());
+        if (versionEnd < 0) {
+            return null;
+        }
+        int version;
+        try {
+            version = Integer.parseInt(name.substring(VERSIONS_PREFIX.length(), versionEnd));
+        } catch (NumberFormatException ex) {
+            // not a versioned entry that the JVM recognizes
+            return null;
+        }
+        String path = name.substring(versionEnd + 1);
+        for (int lower = version - 1; lower >= MIN_VERSION; --lower) {
+            String candidate = VERSIONS_PREFIX + lower + "/" + path;
+            if (exists.test(candidate)) {
+                return candidate;
+            }
+        }
+        return exists.test(path) ? path : null;
+    }
+
+    /**
+     * Determine whether a versioned entry is identical to the lower entry.
+     * Class files only differ by their class file version when compiled for different releases,
+     * and as the lower class file is just as well loaded by the higher release, the version is not compared.
+     */
+    private static boolean isIdentical(String name, File file, File lower) {
+        if (file.length() != lower.length()) {
+            return false;
+        }
+        byte[] contents;
+        byte[] lowerContents;
+        try {
+            contents = Files.readAllBytes(file.toPath());
+            lowerContents = Files.readAllBytes(lower.toPath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to compare " + file + " with " + lower, ex);
+        }
+        if (name.endsWith(".class") && isClassFile(contents) && isClassFile(lowerContents)) {
+            // the minor and major version follow the magic number
+            for (int idx = 4; idx < 8; ++idx) {
+                lowerContents[idx] = contents[idx];
+            }
+        }
+        return Arrays.equals(contents, lowerContents);
+    }
+
+    private static boolean isClassFile(byte[] contents) {
+        return contents.length >= 8 && (contents[0] & 0xFF) == 0xCA && (contents[1] & 0xFF) == 0xFE
+                && (contents[2] & 0xFF) == 0xBA && (contents[3] & 0xFF) == 0xBE;
+    }
+
+    @Override
+    public void execute(FileCopyDetails details) {
+        String name = details.getRelativePath().getPathString();
+        if (!name.startsWith(VERSIONS_PREFIX)) {
+            return;
+        }
+        if (index == null) {
+            index = new HashMap<>();
+            for (Layer layer : layers) {
+                layer.contents.getAsFileTree().visit(file -> {
+                    if (!file.isDirectory()) {
+                        index.putIfAbsent(layer.prefix + file.getRelativePath().getPathString(), file.getFile());
+                    }
+                });
+            }
+        }
+        String lower = getLowerEntry(name, index::containsKey);
+        if (lower != null && isIdentical(name, details.getFile(), index.get(lower))) {
+            details.exclude();
+            ++omitted;
+            saved += details.getSize();
+        }
+    }
+
+    /**
+     * Report the savings of the execution of a task, and prepare for the next execution
+     * @param task {@link Task} that executed
+     */
+    void finish(Task task) {
+        if (omitted > 0) {
+            task.getLogger().lifecycle("{} omitted {} versioned entries that are identical to a lower version, saving {} bytes",
+                    task.getPath(), omitted, saved);
+        }
+        index = null;
+        omitted = 0;
+        saved = 0;
+    }
+}
@@ -20,28 +20,74 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.gradle.api.Action;
+import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
+import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.SourceTask;
 
 /**
  * When performing version overrides, there are often multiple versions of the same source code files targeting
  * different major releases. In these situations, the versions for the non-latest release
  * need to be excluded. This assists in performing such exclusions.
+ * <p>
+ * When created with the sources to index, the index of the sources is not built until the first time
+ * that the exclusion is checked, which is when the task snapshots or processes its sources.
+ * The sources are then only walked a single time, no matter how many sources were added to the task.
  */
 public class DuplicateClassRemover implements Action<FileVisitDetails>, Spec<FileTreeElement> {
 
+    /**
+     * Register the {@link DuplicateClassRemover} to exclude the duplicates of the {@link SourceTask}'s sources,
+     * or reset the already registered one as the sources of the {@link SourceTask} have changed.
+     * @param task {@link SourceTask} to exclude duplicate sources of
+     * @return {@link DuplicateClassRemover} registered for the {@link SourceTask}
+     */
+    public static DuplicateClassRemover register(SourceTask task) {
+        ExtensionContainer exts = task.getExtensions();
+        DuplicateClassRemover dupRemover = exts.findByType(DuplicateClassRemover.class);
+        if (dupRemover == null) {
+            dupRemover = new DuplicateClassRemover(task.getSource());
+            task.exclude(dupRemover);
+            exts.add("duplicateClassRemover", dupRemover);
+        } else {
+            dupRemover.reset();
+        }
+        return dupRemover;
+    }
+
+    /** sources to index, when indexed lazily */
+    protected final FileTree source;
+
     /** {@link Set} of {@link RelativePath}s that have been encountered */
     protected final Set<RelativePath> paths;
 
     /** {@link Set} of {@link File}s that represent a duplicated {@link RelativePath} that should be excluded */
     protected final Set<File> duplicates;
 
+    /** state of the sources having been indexed, which is not retained by the configuration cache,
+     * so that the sources are indexed again in each build */
+    private transient boolean indexed;
+
+    /** state of the sources currently being indexed */
+    private transient boolean indexing;
+
     /**
-     * Create a new {@link DuplicateClassRemover}
+     * Create a new {@link DuplicateClassRemover} that is populated by visiting the sources with it
      */
     public DuplicateClassRemover() {
+        this(null);
+    }
+
+    /**
+     * Create a new {@link DuplicateClassRemover} that lazily indexes the sources
+     * @param source {@link FileTree} of the sources to index, or {@code null} to be populated by visiting the sources
+     *  with it. The {@link FileTree} may itself be filtered by this.
+     */
+    public DuplicateClassRemover(FileTree source) {
+        this.source = source;
         paths = new HashSet<>();
         duplicates = new HashSet<>();
     }
@@ -60,12 +106,33 @@ public class DuplicateClassRemover implements Action<FileVisitDetails>, Spec<Fil
      * Retrieve the duplicate class files that need to be excluded
      * @return duplicate class files to exclude
      */
-    public Set<File> getDuplicates() {
+    public synchronized Set<File> getDuplicates() {
+        if (source != null && !indexed) {
+            // the sources being filtered by this while they are indexed must not exclude anything
+            indexing = true;
+            try {
+                paths.clear();
+                duplicates.clear();
+                source.visit(this);
+                indexed = true;
+            } finally {
+                indexing = false;
+            }
+        }
         return duplicates;
     }
 
     @Override
-    public boolean isSatisfiedBy(FileTreeElement element) {
-        return duplicates.contains(element.getFile());
+    public synchronized boolean isSatisfiedBy(FileTreeElement element) {
+        return !indexing && getDuplicates().contains(element.getFile());
+    }
+
+    /**
+     * Reset the duplicates, so that they are indexed again
+     */
+    protected synchronized void reset() {
+        paths.clear();
+        duplicates.clear();
+        indexed = false;
     }
 }
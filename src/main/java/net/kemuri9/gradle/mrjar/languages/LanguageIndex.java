@@ -0,0 +1,105 @@
+/**
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar.languages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.plugins.ExtensionContainer;
+import org.gradle.api.plugins.ExtensionsSchema.ExtensionSchema;
+import org.gradle.api.tasks.SourceSet;
+
+import net.kemuri9.gradle.mrjar.SourceScanCache;
+
+/**
+ * Index of the file extensions that are present in the language sources of a {@link SourceSet}.
+ * The sources are walked only once, and the index is retained on the {@link SourceSet} so that
+ * every language check for the {@link SourceSet} afterwards does not need to walk the sources again.
+ * Resources are not part of the language sources, so they are never walked.
+ * The walks themselves go through the {@link SourceScanCache}, so unchanged sources are not walked between builds.
+ */
+public class LanguageIndex {
+
+    /**
+     * Retrieve the {@link LanguageIndex} for the {@link SourceSet}, creating it when it does not yet exist.
+     * @param project {@link Project} that is being built out
+     * @param set {@link SourceSet} to retrieve the {@link LanguageIndex} for
+     * @return {@link LanguageIndex} for the {@link SourceSet}
+     */
+    public static LanguageIndex of(Project project, SourceSet set) {
+        ExtensionContainer exts = set.getExtensions();
+        LanguageIndex index = exts.findByType(LanguageIndex.class);
+        if (index == null) {
+            index = new LanguageIndex();
+            SourceScanCache cache = SourceScanCache.get(project);
+            for (SourceDirectorySet source : getLanguageSources(set)) {
+                index.extensions.addAll(cache.getExtensions(source));
+            }
+            exts.add("languageIndex", index);
+        }
+        return index;
+    }
+
+    /**
+     * Retrieve the language {@link SourceDirectorySet}s of the {@link SourceSet}.
+     * This is the java sources and any other registered {@link SourceDirectorySet} extension, such as groovy.
+     * @param set {@link SourceSet} to retrieve the language sources of
+     * @return language {@link SourceDirectorySet}s of the {@link SourceSet}
+     */
+    protected static List<SourceDirectorySet> getLanguageSources(SourceSet set) {
+        List<SourceDirectorySet> sources = new ArrayList<>();
+        sources.add(set.getJava());
+        ExtensionContainer exts = set.getExtensions();
+        for (ExtensionSchema schema : exts.getExtensionsSchema().getElements()) {
+            if (SourceDirectorySet.class.isAssignableFrom(schema.getPublicType().getConcreteClass())) {
+                sources.add((SourceDirectorySet) exts.getByName(schema.getName()));
+            }
+        }
+        return sources;
+    }
+
+    /** file extensions that are present */
+    protected final Set<String> extensions;
+
+    /**
+     * Create a new, empty, {@link LanguageIndex}
+     */
+    public LanguageIndex() {
+        extensions = new HashSet<>();
+    }
+
+    /**
+     * Check if there is any file with the specified file extension
+     * @param ext file extension to check for, including the leading {@code .}
+     * @return state of there being a file with the file extension
+     */
+    public boolean contains(String ext) {
+        return extensions.contains(ext);
+    }
+
+    /**
+     * Retrieve the file extensions that are present
+     * @return file extensions that are present
+     */
+    public Set<String> getExtensions() {
+        return Collections.unmodifiableSet(extensions);
+    }
+}
@@ -19,12 +19,14 @@ import java.util.Map;
 
 import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.UnknownTaskException;
 import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.jvm.toolchain.JavaToolchainService;
@@ -64,14 +66,15 @@ public interface LanguageSupport {
         }
 
         /**
-         * Retrieve the task for the specified {@link SourceSet}
+         * Retrieve the {@link TaskProvider} of the task for the specified {@link SourceSet}.
+         * The task itself should not be realized by this, so that tasks which are never executed are never created.
          * @param project {@link Project} that is being built out
          * @param set {@link SourceSet} to retrieve the compilation task for
-         * @return task for the specified {@link SourceSet}
+         * @return {@link TaskProvider} of the task for the specified {@link SourceSet}
          * @throws UnknownTaskException When the expected task does not exist
-         * @throws ClassCastException When the expected task is not of the expected type
+         * @throws InvalidUserDataException When the expected task is not of the expected type
          */
-        T getTask(Project project, SourceSet set);
+        TaskProvider<T> getTask(Project project, SourceSet set);
 
         /**
          * Configure the task's modularity, when supported.
@@ -96,6 +99,17 @@ public interface LanguageSupport {
          * @param version version of Java to compile with
          */
         default void setVersionOptions(T task, JavaVersion version) {};
+
+        /**
+         * Configure the task to target a specific version of Java, when compiling with a single version of Java
+         * that may be newer, such as with {@code --release}
+         * @param task {@link Task} task to configure
+         * @param version version of Java to target
+         * @param compilerVersion version of Java that compiles for the targeted version
+         */
+        default void setReleaseOptions(T task, JavaVersion version, JavaVersion compilerVersion) {
+            setVersionOptions(task, version);
+        }
     }
 
     /**
@@ -105,12 +119,29 @@ public interface LanguageSupport {
      */
     interface CompileHandler<T extends AbstractCompile> extends TaskHandler<T> {
         /**
-         * Flag that the specified task depends on the output of a compilation
+         * Flag that the specified task depends on the output of a compilation, such as by adding it to the classpath.
+         * The task dependency itself is declared by the caller, only when it is not already implied
+         * through the other dependencies of the task.
          * @param project {@link Project} that is being built out
          * @param task {@link AbstractCompile} that depends on the output of another
          * @param dependedOn {@link AbstractCompile} that is depended on
          */
         void addDependency(Project project, T task, AbstractCompile dependedOn);
+
+        /**
+         * Retrieve if the compiler of the language is forked even when compiling with the current JVM
+         * @return {@code true} when the compiler is always forked
+         */
+        default boolean isAlwaysForked() {
+            return false;
+        }
+
+        /**
+         * Configure the maximum heap size of the forked compiler of the task, when it is forked
+         * @param task {@link AbstractCompile} to configure
+         * @param maxHeapSize maximum heap size, such as {@code 512m}
+         */
+        default void setMaxHeapSize(T task, String maxHeapSize) {}
     }
 
     /**
@@ -196,7 +227,9 @@ public interface LanguageSupport {
     default void initialize(Project project) {};
 
     /**
-     * Check if this JVM-based language is utilized in the specified {@link SourceSet}
+     * Check if this JVM-based language is utilized in the specified {@link SourceSet}.
+     * This is checked many times for the same {@link SourceSet}, so the {@link LanguageIndex} should be
+     * preferred over walking the sources again.
      * @param project {@link Project} that contains the {@link SourceSet}
      * @param set {@link SourceSet} to configure
      * @return state of the JVM-based language being utilized in the {@link SourceSet}
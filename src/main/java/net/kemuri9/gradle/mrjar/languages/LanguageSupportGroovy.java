@@ -33,13 +33,16 @@ import org.gradle.api.plugins.internal.JvmPluginsHelper;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.GroovySourceDirectorySet;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.compile.GroovyCompile;
 import org.gradle.api.tasks.javadoc.Groovydoc;
-import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.jvm.toolchain.JavaToolchainService;
 
+import net.kemuri9.gradle.mrjar.FlatFileCollections;
+import net.kemuri9.gradle.mrjar.ToolchainProviders;
+
 /**
  * {@link LanguageSupport} for the groovy language
  */
@@ -51,32 +54,36 @@ public class LanguageSupportGroovy implements LanguageSupport {
     public static class GroovyCompileHandler implements CompileHandler<GroovyCompile> {
         @Override
         public void addDependency(Project project, GroovyCompile compile, AbstractCompile dependsOn) {
-            compile.dependsOn(dependsOn);
-
             /* add to the classpath. Do NOT perform a contains check here as it causes the system
              * to resolve the entire compilation task graph! */
-            FileCollection classpath = compile.getClasspath().plus(project.files(dependsOn.getDestinationDirectory()));
-            compile.setClasspath(classpath);
+            FlatFileCollections.append(compile, "classpath", compile.getClasspath(), compile::setClasspath,
+                    dependsOn.getDestinationDirectory());
         }
 
         @Override
         public void configure(Project project, SourceSet set, Action<? super GroovyCompile> configure) {
-           project.getPlugins().withType(GroovyBasePlugin.class, plugin ->  {
-                GroovyCompile groovyCompile = getTask(project, set);
-                configure.execute(groovyCompile);
-            });
+            project.getPlugins().withType(GroovyBasePlugin.class, plugin -> getTask(project, set).configure(configure));
+        }
+
+        @Override
+        public TaskProvider<GroovyCompile> getTask(Project project, SourceSet set) {
+            return project.getTasks().named(set.getCompileTaskName("groovy"), GroovyCompile.class);
         }
 
         @Override
-        public GroovyCompile getTask(Project project, SourceSet set) {
-            return (GroovyCompile) project.getTasks().getByName(set.getCompileTaskName("groovy"));
+        public boolean isAlwaysForked() {
+            // groovy is always compiled in a compiler daemon
+            return true;
+        }
+
+        @Override
+        public void setMaxHeapSize(GroovyCompile compile, String maxHeapSize) {
+            compile.getGroovyOptions().getForkOptions().setMemoryMaximumSize(maxHeapSize);
         }
 
         @Override
         public void setToolchain(GroovyCompile compile, JavaToolchainService javaToolchains, JavaVersion version) {
-            Provider<JavaLauncher> launcher = javaToolchains.launcherFor(configure -> {
-                configure.getLanguageVersion().set(JavaLanguageVersion.of(version.getMajorVersion()));
-            });
+            Provider<JavaLauncher> launcher = ToolchainProviders.get(compile.getProject()).launcherFor(javaToolchains, version);
             compile.getJavaLauncher().set(launcher);
         }
 
@@ -95,18 +102,13 @@ public class LanguageSupportGroovy implements LanguageSupport {
 
         @Override
         public void addSourceSet(Project project, Groovydoc task, SourceSet included) {
-            DuplicateClassRemover dupRemover = new DuplicateClassRemover();
             task.source(getGroovySource(included));
-            task.getSource().visit(dupRemover);
-            task.exclude(dupRemover);
+            DuplicateClassRemover.register(task);
         }
 
         @Override
         public void configure(Project project, SourceSet set, Action<? super Groovydoc> configure) {
-            project.getPlugins().withType(GroovyBasePlugin.class, plugin -> {
-                Groovydoc groovydoc = getTask(project, set);
-                configure.execute(groovydoc);
-            });
+            project.getPlugins().withType(GroovyBasePlugin.class, plugin -> getTask(project, set).configure(configure));
         }
 
         /**
@@ -128,8 +130,8 @@ public class LanguageSupportGroovy implements LanguageSupport {
         }
 
         @Override
-        public Groovydoc getTask(Project project, SourceSet set) {
-            return (Groovydoc) project.getTasks().getByName(getTaskName(set));
+        public TaskProvider<Groovydoc> getTask(Project project, SourceSet set) {
+            return project.getTasks().named(getTaskName(set), Groovydoc.class);
         }
 
         @Override
@@ -172,7 +174,7 @@ public class LanguageSupportGroovy implements LanguageSupport {
 
             Configuration config = JvmPluginsHelper.createDocumentationVariantWithArtifact(configName,
                     isMain ? null : set.getName(), "groovydoc", Collections.emptySet(),
-                    taskName + "Jar", getTask(project, set).getOutputs(), (ProjectInternal) project);
+                    taskName + "Jar", getTask(project, set), (ProjectInternal) project);
             // add the target version
             config.getAttributes().attribute(TargetJvmVersion.TARGET_JVM_VERSION_ATTRIBUTE,
                     Integer.parseInt(version.getMajorVersion()));
@@ -231,10 +233,7 @@ public class LanguageSupportGroovy implements LanguageSupport {
         if (!project.getPluginManager().hasPlugin("groovy")) {
             return false;
         }
-        ExtensionVisitor visitor = new ExtensionVisitor(".groovy");
-        // may not use allJava as that includes a **.java filter which defeats the point
-        set.getAllSource().visit(visitor);
-        return visitor.getIsContained();
+        return LanguageIndex.of(project, set).contains(".groovy");
     }
 
     @Override
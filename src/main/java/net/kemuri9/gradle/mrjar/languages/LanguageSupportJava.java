@@ -18,9 +18,12 @@ package net.kemuri9.gradle.mrjar.languages;
 import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Project;
 import org.gradle.api.UnknownTaskException;
@@ -33,18 +36,21 @@ import org.gradle.api.plugins.*;
 import org.gradle.api.plugins.internal.JvmPluginsHelper;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.reporting.ReportingExtension;
+import org.gradle.api.tasks.ClasspathNormalizer;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.javadoc.Javadoc;
 import org.gradle.external.javadoc.CoreJavadocOptions;
 import org.gradle.jvm.toolchain.JavaCompiler;
-import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.jvm.toolchain.JavadocTool;
 
+import net.kemuri9.gradle.mrjar.FlatFileCollections;
 import net.kemuri9.gradle.mrjar.Modularity;
 import net.kemuri9.gradle.mrjar.PatchProvider;
+import net.kemuri9.gradle.mrjar.ToolchainProviders;
 
 /**
  * {@link LanguageSupport} for the base Java language
@@ -57,8 +63,6 @@ public class LanguageSupportJava implements LanguageSupport {
     public static class JavaCompileHandler implements CompileHandler<JavaCompile> {
         @Override
         public void addDependency(Project project, JavaCompile compile, AbstractCompile dependsOn) {
-            compile.dependsOn(dependsOn);
-
             Modularity compileMod = LanguageSupport.getTaskModularity(compile);
             Modularity dependsMod = LanguageSupport.getTaskModularity(dependsOn);
             // if this task is a module and the target is a module fragment then it needs to be patched in
@@ -80,8 +84,8 @@ public class LanguageSupportJava implements LanguageSupport {
             /* add to the classpath (module path when it applies).
              * Do NOT perform a contains check here as it causes the system
              * to resolve the entire compilation task graph! */
-            FileCollection classpath = compile.getClasspath().plus(project.files(dependsOn.getDestinationDirectory()));
-            compile.setClasspath(classpath);
+            FlatFileCollections.append(compile, "classpath", compile.getClasspath(), compile::setClasspath,
+                    dependsOn.getDestinationDirectory());
         }
 
         /**
@@ -92,22 +96,24 @@ public class LanguageSupportJava implements LanguageSupport {
          */
         public void addDependencyModulePatch(Project project, JavaCompile compile, AbstractCompile dependsOn) {
             // add patch for the output directory of the dependent
-            PatchProvider provider = PatchProvider.getProvider(compile.getOptions().getCompilerArgumentProviders());
+            PatchProvider provider = PatchProvider.getCompileProvider(compile.getOptions().getCompilerArgumentProviders());
             String moduleName = LanguageSupport.getTaskModularity(dependsOn).moduleName;
             provider.add(moduleName, dependsOn.getDestinationDirectory());
         }
 
         @Override
         public void configure(Project project, SourceSet set, Action<? super JavaCompile> configure) {
-            project.getPlugins().withType(JavaBasePlugin.class, plugin -> {
-                JavaCompile javaCompile = getTask(project, set);
-                configure.execute(javaCompile);
-            });
+            project.getPlugins().withType(JavaBasePlugin.class, plugin -> getTask(project, set).configure(configure));
+        }
+
+        @Override
+        public TaskProvider<JavaCompile> getTask(Project project, SourceSet set) {
+            return project.getTasks().named(set.getCompileJavaTaskName(), JavaCompile.class);
         }
 
         @Override
-        public JavaCompile getTask(Project project, SourceSet set) {
-            return (JavaCompile) project.getTasks().getByName(set.getCompileJavaTaskName());
+        public void setMaxHeapSize(JavaCompile compile, String maxHeapSize) {
+            compile.getOptions().getForkOptions().setMemoryMaximumSize(maxHeapSize);
         }
 
         @Override
@@ -119,9 +125,7 @@ public class LanguageSupportJava implements LanguageSupport {
 
         @Override
         public void setToolchain(JavaCompile compile, JavaToolchainService javaToolchains, JavaVersion version) {
-            Provider<JavaCompiler> compiler = javaToolchains.compilerFor(configure -> {
-                configure.getLanguageVersion().set(JavaLanguageVersion.of(version.getMajorVersion()));
-            });
+            Provider<JavaCompiler> compiler = ToolchainProviders.get(compile.getProject()).compilerFor(javaToolchains, version);
             compile.getJavaCompiler().set(compiler);
         }
 
@@ -134,6 +138,15 @@ public class LanguageSupportJava implements LanguageSupport {
                 compile.getOptions().getRelease().set(Integer.parseInt(version.getMajorVersion()));
             }
         }
+
+        @Override
+        public void setReleaseOptions(JavaCompile compile, JavaVersion version, JavaVersion compilerVersion) {
+            setVersionOptions(compile, version);
+            // --release is only broken with the compiler of java 9 itself, so it can be used for 9 with newer compilers
+            if (compilerVersion.isCompatibleWith(JavaVersion.VERSION_1_10)) {
+                compile.getOptions().getRelease().set(Integer.parseInt(version.getMajorVersion()));
+            }
+        }
     }
 
     /**
@@ -159,10 +172,8 @@ public class LanguageSupportJava implements LanguageSupport {
         public void addSourceSetSource(Project project, Javadoc task, SourceSet include) {
             /* inclusion of all java is required for module path resolution to work,
              * so it must be added and the duplicates most be removed after */
-            DuplicateClassRemover dupRemover = new DuplicateClassRemover();
             task.source(include.getAllJava());
-            task.getSource().visit(dupRemover);
-            task.exclude(dupRemover);
+            DuplicateClassRemover.register(task);
         }
 
         /**
@@ -178,33 +189,35 @@ public class LanguageSupportJava implements LanguageSupport {
                 provider = new PatchProvider();
                 ((CoreJavadocOptions) task.getOptions()).addOption(provider);
                 taskExts.add("patchModule", provider);
+                /* javadoc options only record the module names and directory counts as an input,
+                 * so the patched directories need to be tracked as inputs of the task */
+                task.getInputs().files((Callable<List<Provider<File>>>) provider::getPatchDirectories)
+                    .withPropertyName("patchModuleDirectories").withNormalizer(ClasspathNormalizer.class);
             }
 
             try {
-                JavaCompile compile = (JavaCompile) project.getTasks().getByName(include.getCompileJavaTaskName());
+                JavaCompile compile = project.getTasks().named(include.getCompileJavaTaskName(), JavaCompile.class).get();
                 Modularity compMod = LanguageSupport.getTaskModularity(compile);
                 if (compMod != null && compMod.state == Modularity.State.MODULE_PATCH) {
                     provider.add(compMod.moduleName, compile.getDestinationDirectory());
                 } else if (compMod != null && compMod.state == Modularity.State.IS_MODULE) {
-                   task.setClasspath(task.getClasspath().plus(project.files(compile.getDestinationDirectory())));
+                   FlatFileCollections.append(task, "classpath", task.getClasspath(), task::setClasspath,
+                           compile.getDestinationDirectory());
                 }
                 task.dependsOn(compile);
-            } catch (UnknownTaskException | ClassCastException ex) {
+            } catch (UnknownTaskException | InvalidUserDataException ex) {
                 return;
             }
         }
 
         @Override
         public void configure(Project project, SourceSet set, Action<? super Javadoc> configure) {
-            project.getPlugins().withType(JavaBasePlugin.class, plugin -> {
-                Javadoc javadoc = getTask(project, set);
-                configure.execute(javadoc);
-            });
+            project.getPlugins().withType(JavaBasePlugin.class, plugin -> getTask(project, set).configure(configure));
         }
 
         @Override
-        public Javadoc getTask(Project project, SourceSet set) {
-            return (Javadoc) project.getTasks().getByName(getTaskName(set));
+        public TaskProvider<Javadoc> getTask(Project project, SourceSet set) {
+            return project.getTasks().named(getTaskName(set), Javadoc.class);
         }
 
         /**
@@ -234,10 +247,12 @@ public class LanguageSupportJava implements LanguageSupport {
             // register the javadoc task
             project.getTasks().register(getTaskName(set), Javadoc.class, javadoc -> {
                 JavaPluginExtension java = project.getExtensions().getByType(JavaPluginExtension.class);
+                // do not capture the project in the mappings, only the extensions that are needed
+                ReportingExtension reporting = project.getExtensions().getByType(ReportingExtension.class);
                 javadoc.setDescription("Generates Javadoc API documentation for the " + set.getName() + " source code.");
                 javadoc.setGroup("documentation");
                 javadoc.getConventionMapping().map("destinationDir", ()-> new File(java.getDocsDir().getAsFile().get(), getTaskName(set)));
-                javadoc.getConventionMapping().map("title", ()-> project.getExtensions().getByType(ReportingExtension.class).getApiDocTitle());
+                javadoc.getConventionMapping().map("title", reporting::getApiDocTitle);
                 javadoc.setClasspath(set.getOutput().plus(set.getCompileClasspath()));
                 javadoc.source(set.getAllJava());
                 javadoc.getOptions().source(version.getMajorVersion());
@@ -255,7 +270,7 @@ public class LanguageSupportJava implements LanguageSupport {
             boolean isMain = set.getName().equals(SourceSet.MAIN_SOURCE_SET_NAME);
             Configuration config = JvmPluginsHelper.createDocumentationVariantWithArtifact(set.getJavadocElementsConfigurationName(),
                     isMain ? null : set.getName(), org.gradle.api.attributes.DocsType.JAVADOC, Collections.emptySet(),
-                    set.getJavadocJarTaskName(), getTask(project, set).getOutputs(), (ProjectInternal) project);
+                    set.getJavadocJarTaskName(), getTask(project, set), (ProjectInternal) project);
             // add the target version
             config.getAttributes().attribute(TargetJvmVersion.TARGET_JVM_VERSION_ATTRIBUTE,
                     Integer.parseInt(version.getMajorVersion()));
@@ -270,9 +285,7 @@ public class LanguageSupportJava implements LanguageSupport {
 
         @Override
         public void setToolchain(Javadoc task, JavaToolchainService javaToolchains, JavaVersion version) {
-            Provider<JavadocTool> tool = javaToolchains.javadocToolFor(configure -> {
-                configure.getLanguageVersion().set(JavaLanguageVersion.of(version.getMajorVersion()));
-            });
+            Provider<JavadocTool> tool = ToolchainProviders.get(task.getProject()).javadocToolFor(javaToolchains, version);
             task.getJavadocTool().set(tool);
         }
     }
@@ -330,9 +343,7 @@ public class LanguageSupportJava implements LanguageSupport {
         if (!plugins.hasPlugin("java") && !plugins.hasPlugin("java-library")) {
             return false;
         }
-        ExtensionVisitor visitor = new ExtensionVisitor(".java");
-        set.getAllJava().visit(visitor);
-        return visitor.getIsContained();
+        return LanguageIndex.of(project, set).contains(".java");
     }
 
     @Override
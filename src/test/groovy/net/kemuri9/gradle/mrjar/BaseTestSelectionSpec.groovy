@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Path
+
+import org.gradle.testkit.runner.BuildResult
+
+import spock.lang.TempDir
+
+class BaseTestSelectionSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    protected void createProject() {
+        writeClass(tempDir, 'main', 'select.Overridden', ' public int value() { return 8; } ')
+        writeClass(tempDir, 'main', 'select.Indirect', ' public int value() { return new Overridden().value(); } ')
+        writeClass(tempDir, 'main', 'select.Unchanged', ' public int value() { return 0; } ')
+        writeClass(tempDir, 'java11', 'select.Overridden', ' public int value() { return 11; } ')
+        writeClass(tempDir, 'test', 'select.OverriddenTest', ' void test() { new Overridden().value(); } ')
+        writeClass(tempDir, 'test', 'select.IndirectTest', ' void test() { new Indirect().value(); } ')
+        writeClass(tempDir, 'test', 'select.UnchangedTest', ' void test() { new Unchanged().value(); } ')
+        writeProject(tempDir, 'select', '''
+            includeBaseTests = true
+            selectBaseTests = true
+            addVersion(11) { main { dependsOn(8) } }
+        ''', '''
+tasks.register('printCandidates') {
+    def candidates = tasks.named('java11Test').map{ it.candidateClassFiles }
+    dependsOn 'java11Test'
+    doLast { println 'CANDIDATES ' + candidates.get().files*.name.sort() }
+}
+''')
+    }
+
+    void 'only the main tests that reach overridden classes are executed for a version'() {
+        setup:
+        createProject()
+
+        expect:
+        BuildResult result = newGradleRunner('printCandidates').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        result.output.readLines().find{ it.startsWith('CANDIDATES') } ==
+            'CANDIDATES [IndirectTest.class, OverriddenTest.class]'
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'all main tests are executed for a version when requested'() {
+        setup:
+        createProject()
+
+        expect:
+        BuildResult result = newGradleRunner('printCandidates', '-Pmrjar.allBaseTests=true')
+            .withProjectDir(tempDir.toFile()).withGradleVersion(gradleVersion).build()
+        result.output.readLines().find{ it.startsWith('CANDIDATES') } ==
+            'CANDIDATES [IndirectTest.class, OverriddenTest.class, UnchangedTest.class]'
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+}
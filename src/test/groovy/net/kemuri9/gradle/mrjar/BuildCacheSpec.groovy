@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+
+import spock.lang.TempDir
+
+class BuildCacheSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    /**
+     * Copy a test project along with the code it references into {@code target},
+     * using {@code cacheDir} as the local build cache
+     */
+    protected Path copyProject(Path target, String project, Path cacheDir) {
+        copyTree(Paths.get('src/test/resources/code'), target.resolve('src/test/resources/code'))
+        Path projectDir = target.resolve("testprojects/${project}")
+        copyTree(Paths.get("testprojects/${project}"), projectDir)
+        String cacheConfig = "\nbuildCache { local { directory = '${cacheDir.toUri()}' } }\n"
+        Files.write(projectDir.resolve('settings.gradle'), cacheConfig.getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND)
+        projectDir
+    }
+
+    void 'module patches are relocatable'() {
+        setup:
+        Path cacheDir = tempDir.resolve('build-cache')
+        Path firstDir = copyProject(tempDir.resolve('first'), 'test3', cacheDir)
+        Path secondDir = copyProject(tempDir.resolve('second'), 'test3', cacheDir)
+        String[] args = ['compileJava9TestJava', 'java9Javadoc', '--build-cache']
+
+        expect:
+        BuildResult first = newGradleRunner(args).withProjectDir(firstDir.toFile()).withGradleVersion(gradleVersion).build()
+        first.tasks(TaskOutcome.FAILED).empty
+
+        BuildResult second = newGradleRunner(args).withProjectDir(secondDir.toFile()).withGradleVersion(gradleVersion).build()
+        second.task(':compileJava9Java').outcome == TaskOutcome.FROM_CACHE
+        second.task(':compileJava9TestJava').outcome == TaskOutcome.FROM_CACHE
+        second.task(':java9Javadoc').outcome == TaskOutcome.FROM_CACHE
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'implementation changes of a patched module do not recompile later versions'() {
+        setup:
+        Path projectDir = copyProject(tempDir.resolve('project'), 'test3', tempDir.resolve('build-cache'))
+        Path person = projectDir.resolve('../../src/test/resources/code/src/main/java/test/Person.java').normalize()
+
+        expect:
+        BuildResult first = newGradleRunner('compileJava9Java').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        first.task(':compileJava9Java').outcome == TaskOutcome.SUCCESS
+
+        when: 'a private member is added to the main sources that java 9 patches into its module'
+        String contents = new String(Files.readAllBytes(person), StandardCharsets.UTF_8)
+        contents = contents.substring(0, contents.lastIndexOf('}')) + '    private static void implementationOnly() {}\n}\n'
+        Files.write(person, contents.getBytes(StandardCharsets.UTF_8))
+        BuildResult second = newGradleRunner('compileJava9Java').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+
+        then:
+        second.task(':compileJava').outcome == TaskOutcome.SUCCESS
+        second.task(':compileJava9Java').outcome == TaskOutcome.UP_TO_DATE
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import org.gradle.testkit.runner.BuildResult
+
+import spock.lang.Requires
+import spock.lang.TempDir
+
+/**
+ * Measures how long evaluating the classpaths of all compile and test tasks takes as the number of versions grows,
+ * with every version depending on all earlier versions. Only executed with {@code -Pbenchmark}, which records the
+ * measurements in {@code build/reports/benchmark/classpaths.properties}.
+ */
+@Requires({ System.getProperty('mrjar.benchmark') })
+class ClasspathBenchmarkSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    protected Path createProject(int versionCount) {
+        Path projectDir = tempDir.resolve("versions${versionCount}")
+        writeClass(projectDir, 'main', 'bench.Base')
+        StringBuilder versions = new StringBuilder()
+        for (int version = 9; version < 9 + versionCount; ++version) {
+            writeClass(projectDir, "java${version}", "bench.Main${version}")
+            writeClass(projectDir, "java${version}Test", "bench.Test${version}")
+            String dependsOn = (8..<version).collect{ "dependsOn(${it})" }.join('; ')
+            versions.append("addVersion(${version}) { main { ${dependsOn} }; test { ${dependsOn} } }\n")
+        }
+        writeProject(projectDir, 'benchmark', versions.toString(), """
+tasks.register('measure') {
+    doLast {
+        def classpaths = tasks.withType(JavaCompile).collect{ it.classpath } + tasks.withType(Test).collect{ it.classpath }
+        classpaths.each{ it.files }
+        long start = System.nanoTime()
+        200.times{ classpaths.each{ it.files } }
+        println "MEASURE \${(System.nanoTime() - start).intdiv(200 * 1000)}"
+    }
+}
+""")
+        projectDir
+    }
+
+    void 'classpath evaluation with #versionCount versions'() {
+        setup:
+        Path projectDir = createProject(versionCount)
+        Path results = Paths.get(System.getProperty('mrjar.benchmark')).resolve('classpaths.properties')
+        Files.createDirectories(results.parent)
+
+        when:
+        BuildResult result = newGradleRunner('measure').withProjectDir(projectDir.toFile())
+            .withGradleVersion(GRADLE_VERSIONS.last()).build()
+        String measurement = result.output.readLines().find{ it.startsWith('MEASURE') }
+        results.withWriterAppend('UTF-8'){ it.write("versions${versionCount}.micros=${measurement - 'MEASURE '}\n") }
+        Properties recorded = new Properties()
+        results.withInputStream{ recorded.load(it) }
+
+        then:
+        measurement != null
+        (recorded.getProperty("versions${versionCount}.micros") as long) >= 0
+
+        where:
+        versionCount << [1, 2, 4, 8]
+    }
+}
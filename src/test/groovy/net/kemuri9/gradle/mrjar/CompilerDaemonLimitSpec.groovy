@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Path
+
+import org.gradle.api.JavaVersion
+import org.gradle.testkit.runner.BuildResult
+
+import spock.lang.TempDir
+
+class CompilerDaemonLimitSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    void 'compilations with a toolchain are bounded across projects'() {
+        setup:
+        String version = JavaVersion.current().majorVersion
+        writeFile(tempDir.resolve('settings.gradle'), "rootProject.name = 'limit'\ninclude 'a', 'b'\n")
+        for (String project : ['a', 'b']) {
+            writeClass(tempDir.resolve(project), 'main', "${project}.Base")
+            writeClass(tempDir.resolve(project), "java${version}", "${project}.Main")
+            writeBuildScript(tempDir.resolve(project), """
+                useToolchain = true
+                maxParallelCompilesPerToolchain = 1
+                compilerMaxHeapSize = '256m'
+                addVersion(${version}) {
+                    compilerMaxHeapSize = '${project == 'a' ? '384m' : '256m'}'
+                    main { dependsOn(8) }
+                }
+            """, """
+tasks.register('printLimits') {
+    def limits = provider { tasks.named('compileJava${version}Java').map{ "LIMIT ${project} \${it.options.forkOptions.memoryMaximumSize} " +
+        gradle.sharedServices.registrations.names.findAll{ it.startsWith('mrjarCompilerDaemons') } }.get() }
+    doLast { println limits.get() }
+}
+""")
+        }
+
+        expect:
+        BuildResult result = newGradleRunner('jar', 'printLimits', '--parallel').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        result.output.readLines().findAll{ it.startsWith('LIMIT') }.sort() ==
+            ["LIMIT a 384m [mrjarCompilerDaemons${version}]", "LIMIT b 256m [mrjarCompilerDaemons${version}]"]*.toString()
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'groovy compilations are bounded without a toolchain'() {
+        setup:
+        writeClass(tempDir, 'main', 'daemon.Base')
+        writeFile(tempDir.resolve('src/java11/groovy/daemon/Main.groovy'), 'package daemon\nclass Main {}\n')
+        writeProject(tempDir, 'groovy', '''
+            maxParallelCompilesPerToolchain = 1
+            compilerMaxHeapSize = '256m'
+            addVersion(11) { main { dependsOn(8) } }
+        ''', """
+apply plugin: 'groovy'
+dependencies {
+    implementation localGroovy()
+    java11Implementation localGroovy()
+}
+tasks.register('printLimits') {
+    def limits = provider { tasks.named('compileJava11Groovy').map{ "LIMIT \${it.groovyOptions.forkOptions.memoryMaximumSize} " +
+        gradle.sharedServices.registrations.names.findAll{ it.startsWith('mrjarCompilerDaemons') } }.get() }
+    doLast { println limits.get() }
+}
+""")
+
+        expect:
+        BuildResult result = newGradleRunner('jar', 'printLimits').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        result.output.readLines().find{ it.startsWith('LIMIT') } ==
+            "LIMIT 256m [mrjarCompilerDaemons${JavaVersion.current().majorVersion}]".toString()
+        jarPaths(tempDir.resolve('build/libs/groovy.jar')).contains('META-INF/versions/11/daemon/Main.class')
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+
+import spock.lang.TempDir
+
+class ConfigurationCacheSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    void 'configuration cache reused'() {
+        setup:
+        // a copy, so that no configuration cache entry of a prior execution exists
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        File projectDir = tempDir.resolve("testprojects/${project}").toFile()
+        copyTree(Paths.get("testprojects/${project}"), projectDir.toPath())
+
+        expect:
+        BuildResult first = newGradleRunner('clean', 'build', '--configuration-cache')
+            .withProjectDir(projectDir).withGradleVersion(gradleVersion).build()
+        first.tasks(TaskOutcome.FAILED).empty
+        first.output.contains('Configuration cache entry stored.')
+
+        BuildResult second = newGradleRunner('clean', 'build', '--configuration-cache')
+            .withProjectDir(projectDir).withGradleVersion(gradleVersion).build()
+        second.tasks(TaskOutcome.FAILED).empty
+        second.output.contains('Reusing configuration cache.')
+        second.output.contains('Configuration cache entry reused.')
+        second.output.contains(':test results: SUCCESS')
+
+        where:
+        [project, gradleVersion] << [['test1', 'test2', 'test3'], GRADLE_VERSIONS].combinations()
+    }
+}
@@ -46,6 +46,64 @@ abstract class GradleRunnerSpecification extends spock.lang.Specification {
         gradleHomeArgs = gradleHomeProps.collect{ k, v -> "-P${k}=${v}".toString() }
     }
 
+    protected void copyTree(Path source, Path target) {
+        Stream<Path> contents = Files.walk(source)
+        try {
+            contents.filter{ !source.relativize(it).toString().matches('(build|\\.gradle)([/\\\\].*)?') }.forEach{
+                Path dest = target.resolve(source.relativize(it).toString())
+                if (Files.isDirectory(it)) {
+                    Files.createDirectories(dest)
+                } else {
+                    Files.copy(it, dest)
+                }
+            }
+        } finally {
+            contents.close()
+        }
+    }
+
+    protected void writeFile(Path path, String contents) {
+        Files.createDirectories(path.parent)
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8))
+    }
+
+    /* writes src/<sourceSet>/java/<package path>/<simple name>.java declaring a public class with the given body */
+    protected void writeClass(Path projectDir, String sourceSet, String className, String body = '') {
+        int dot = className.lastIndexOf('.')
+        writeFile(projectDir.resolve("src/${sourceSet}/java/${className.replace('.', '/')}.java"),
+            "package ${className.substring(0, dot)};\npublic class ${className.substring(dot + 1)} {${body}}\n")
+    }
+
+    /* writes a java-library build script applying the plugin for java 8, with the given mrjar configuration
+     * followed by the extra script contents */
+    protected void writeBuildScript(Path projectDir, String mrjarConfig, String extra = '') {
+        writeFile(projectDir.resolve('build.gradle'), """
+plugins {
+    id 'java-library'
+    id 'net.kemuri9.gradle.mrjar'
+}
+java {
+    sourceCompatibility = JavaVersion.toVersion(8)
+    targetCompatibility = JavaVersion.toVersion(8)
+}
+mrjar {
+${indent(mrjarConfig)}
+}
+${extra}""")
+    }
+
+    /* re-indents the non-blank lines of the contents to be nested one level */
+    protected String indent(String contents) {
+        List<String> lines = contents.readLines().findAll{ it.trim() }
+        int common = lines.collect{ it.length() - it.replaceAll('^\\s+', '').length() }.min()
+        lines.collect{ '    ' + it.substring(common) }.join('\n')
+    }
+
+    protected void writeProject(Path projectDir, String name, String mrjarConfig, String extra = '') {
+        writeFile(projectDir.resolve('settings.gradle'), "rootProject.name = '${name}'\n")
+        writeBuildScript(projectDir, mrjarConfig, extra)
+    }
+
     protected void checkIsFile(Path path) {
         assert Files.exists(path)
         assert Files.isRegularFile(path)
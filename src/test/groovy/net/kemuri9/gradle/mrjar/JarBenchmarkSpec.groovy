@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import org.gradle.testkit.runner.BuildResult
+
+import spock.lang.Requires
+import spock.lang.TempDir
+
+/**
+ * Measures how long writing the jar takes, in its entirety and after a single entry changed,
+ * with the stock jar task and with the incremental jar compressing serially and in parallel.
+ * Only executed with {@code -Pbenchmark}, which records the measurements in {@code build/reports/benchmark/jar.properties}.
+ */
+@Requires({ System.getProperty('mrjar.benchmark') })
+class JarBenchmarkSpec extends GradleRunnerSpecification {
+
+    private static final int ENTRY_COUNT = 2000
+
+    private static final List<String> WORDS = ['public', 'static', 'final', 'class', 'return', 'void', 'int', 'String',
+        'new', 'this', 'if', 'else', 'for', 'while', '{', '}', '(', ')', ';', '=', 'value', 'name', 'index', 'count']
+
+    @TempDir
+    Path tempDir
+
+    protected Path createProject(String mrjarConfig, String extra, String timedTask) {
+        Path projectDir = tempDir.resolve('benchmark')
+        writeClass(projectDir, 'main', 'bench.Base')
+        writeClass(projectDir, 'java11', 'bench.Base')
+        for (int idx = 0; idx < ENTRY_COUNT; ++idx) {
+            writeFile(projectDir.resolve("src/main/resources/bench/entry${idx}.txt"), text(idx, 0))
+        }
+        writeProject(projectDir, 'benchmark', """
+addVersion(11) { main { dependsOn(8) } }
+${mrjarConfig}
+""", """
+jar { preserveFileTimestamps = false }
+long[] elapsed = [0]
+def timed = tasks.matching{ it.name == '${timedTask}' }
+timed.configureEach { task ->
+    long[] start = [0]
+    task.doFirst { start[0] = System.nanoTime() }
+    task.doLast { elapsed[0] += System.nanoTime() - start[0] }
+}
+tasks.register('measure') {
+    mustRunAfter timed
+    doLast { println "MEASURE \${elapsed[0].intdiv(1000000)}" }
+}
+${extra}""")
+        projectDir
+    }
+
+    /* text that compresses about as well as source code, differing by the seed and the revision */
+    protected String text(int seed, int revision) {
+        Random random = new Random(seed * 31L + revision)
+        StringBuilder text = new StringBuilder()
+        while (text.length() < 16384) {
+            text.append(WORDS[random.nextInt(WORDS.size())]).append(random.nextInt(8) == 0 ? '\n' : ' ')
+        }
+        text.toString()
+    }
+
+    protected long measure(Path projectDir) {
+        BuildResult result = newGradleRunner('jar', 'measure').withProjectDir(projectDir.toFile())
+            .withGradleVersion(GRADLE_VERSIONS.last()).build()
+        String measurement = result.output.readLines().find{ it.startsWith('MEASURE') }
+        assert measurement != null
+        (measurement - 'MEASURE ') as long
+    }
+
+    void 'jar writing with #mode'() {
+        setup:
+        Path projectDir = createProject(mrjarConfig, extra, timedTask)
+        Path results = Paths.get(System.getProperty('mrjar.benchmark')).resolve('jar.properties')
+        Files.createDirectories(results.parent)
+
+        when:
+        long full = measure(projectDir)
+        List<Long> changes = (1..3).collect{ int revision ->
+            writeFile(projectDir.resolve('src/main/resources/bench/entry0.txt'), text(0, revision))
+            measure(projectDir)
+        }
+        results.withWriterAppend('UTF-8'){
+            it.write("${mode}.full.millis=${full}\n${mode}.change.millis=${changes.min()}\n")
+        }
+        Properties recorded = new Properties()
+        results.withInputStream{ recorded.load(it) }
+
+        then:
+        (recorded.getProperty("${mode}.full.millis") as long) >= 0
+        (recorded.getProperty("${mode}.change.millis") as long) >= 0
+
+        where:
+        mode       | mrjarConfig             | timedTask         | extra
+        'stock'    | ''                      | 'jar'             | ''
+        'serial'   | 'incrementalJar = true' | 'multiReleaseJar' | "tasks.withType(${MultiReleaseJar.name}).configureEach { compressionThreads = 1 }"
+        'parallel' | 'incrementalJar = true' | 'multiReleaseJar' | ''
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.CharBuffer
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ModuleReaderSpec extends Specification {
+
+    @TempDir
+    Path tempDir
+
+    protected String read(String contents) {
+        new ModuleReader(CharBuffer.wrap(contents)).readModuleName()
+    }
+
+    void 'module name is read from "#contents"'() {
+        expect:
+        read(contents) == name
+
+        where:
+        contents                                                           | name
+        'module a.b.c { requires x; }'                                     | 'a.b.c'
+        'open module a.b {}'                                               | 'a.b'
+        '@Deprecated(since="module {") module x.y {}'                      | 'x.y'
+        '@Foo(@Bar(value = {"a)", \'x\'}, n = (1 + 2))) open module a.b {}' | 'a.b'
+        '@ java . lang . Deprecated module r {}'                           | 'r'
+        'import java.lang.annotation.*; module i {}'                       | 'i'
+        '// module no {\nmodule a {}'                                      | 'a'
+        '/* module no { */ module a {}'                                    | 'a'
+        '/**\n * module no {\n */\nmodule\r\n  a /* c */ .\n b\n{'         | 'a.b'
+        '@A("""\n module z { \\""" )""") module q {}'                      | 'q'
+        ''                                                                 | ''
+    }
+
+    void 'module name is read from large generated module-info.java'() {
+        setup:
+        Random random = new Random(seed)
+        StringBuilder contents = new StringBuilder()
+        List<String> decoys = ['/* module d%d { */\n', '// module d%d {\n', '@A(x = "module d%d {")\n',
+            '@A(@B({"(", \'(\', "module d%d {"}))\n', 'import d%d.module.x;\n', '/** module\n d%d\n { */\n']
+        20000.times { contents.append(String.format(decoys[random.nextInt(decoys.size())], it)) }
+        contents.append('open module generated.').append(seed).append(' { requires java.base; }\n')
+        Path moduleInfo = tempDir.resolve('module-info.java')
+        Files.write(moduleInfo, contents.toString().getBytes(StandardCharsets.UTF_8))
+
+        expect:
+        ModuleReader.readModuleName(moduleInfo) == "generated.${seed}".toString()
+
+        where:
+        seed << (1..10)
+    }
+
+    void 'module name is read from compiled module-info.class'() {
+        setup:
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        DataOutputStream out = new DataOutputStream(bytes)
+        out.writeInt(0xCAFEBABE)
+        out.writeShort(0)
+        out.writeShort(53)
+        out.writeShort(8) // constant pool count, with the long taking two entries
+        out.writeByte(1); out.writeUTF('module-info') // 1
+        out.writeByte(7); out.writeShort(1) // 2
+        out.writeByte(5); out.writeLong(42L) // 3 and 4
+        out.writeByte(1); out.writeUTF('compiled.name') // 5
+        out.writeByte(19); out.writeShort(5) // 6
+        out.writeByte(1); out.writeUTF('Module') // 7
+        out.writeShort(0x8000) // access flags
+        out.writeShort(2) // this class
+        out.writeShort(0) // super class
+        out.writeShort(0) // interfaces
+        out.writeShort(0) // fields
+        out.writeShort(0) // methods
+        out.writeShort(1) // attributes
+        out.writeShort(7)
+        out.writeInt(16)
+        out.writeShort(6) // module name
+        7.times { out.writeShort(0) } // flags, version, and no requires, exports, opens, uses, provides
+        out.flush()
+
+        expect:
+        ModuleClassReader.readModuleName(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) == 'compiled.name'
+    }
+}
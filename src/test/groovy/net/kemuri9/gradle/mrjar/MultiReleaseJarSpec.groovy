@@ -0,0 +1,261 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+
+import spock.lang.TempDir
+
+class MultiReleaseJarSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    private static final String INCREMENTAL = """
+mrjar { incrementalJar = project.hasProperty('incremental') }
+jar {
+    preserveFileTimestamps = false
+    reproducibleFileOrder = true
+    manifest { attributes('Implementation-Title': 'test3') }
+    exclude 'test/Person.class'
+    from('extra') { into 'extra' }
+}
+"""
+
+    void 'incrementally written jar matches the jar task'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        Files.write(projectDir.resolve('build.gradle'), INCREMENTAL.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+        writeFile(projectDir.resolve('extra/notes.txt'), 'notes\n')
+        Path source = tempDir.resolve('src/test/resources/code/src/java9/java/test/CreatePerson.java')
+        Path archive = projectDir.resolve('build/libs/test3.jar')
+        Path stock = tempDir.resolve('stock.jar')
+
+        expect:
+        newGradleRunner('jar').withProjectDir(projectDir.toFile()).withGradleVersion(gradleVersion).build()
+        Files.copy(archive, stock)
+        BuildResult first = newGradleRunner('jar', '-Pincremental').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        first.task(':multiReleaseJar').outcome == TaskOutcome.SUCCESS
+        first.task(':jar').outcome == TaskOutcome.SKIPPED
+        Files.readAllBytes(archive) == Files.readAllBytes(stock)
+        jarPaths(archive).contains('extra/notes.txt')
+        !jarPaths(archive).contains('test/Person.class')
+        new String(jarFileContents(archive, 'META-INF/MANIFEST.MF'), StandardCharsets.UTF_8)
+            .contains('Implementation-Title: test3')
+
+        when: 'a single version changes'
+        String code = new String(Files.readAllBytes(source), StandardCharsets.UTF_8)
+        code = code.substring(0, code.lastIndexOf('}')) + '    public static int added() { return 1; }\n}\n'
+        Files.write(source, code.getBytes(StandardCharsets.UTF_8))
+        BuildResult incremental = newGradleRunner('jar', '-Pincremental', '--info').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        byte[] updated = Files.readAllBytes(archive)
+
+        then:
+        incremental.output.contains('files were copied from the prior archive')
+
+        when: 'the jar is written in its entirety'
+        newGradleRunner('jar', '-Pincremental', '--rerun-tasks').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+
+        then:
+        Files.readAllBytes(archive) == updated
+
+        when: 'the jar task writes the jar again'
+        newGradleRunner('jar').withProjectDir(projectDir.toFile()).withGradleVersion(gradleVersion).build()
+
+        then:
+        Files.readAllBytes(archive) == updated
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'incrementally written jar matches the jar task with #settings'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        String config = INCREMENTAL + "\njar { ${settings} }\n"
+        Files.write(projectDir.resolve('build.gradle'), config.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+        writeFile(projectDir.resolve('extra/notes.txt'), 'notes\n')
+        Path archive = projectDir.resolve('build/libs/test3.jar')
+
+        expect:
+        newGradleRunner('jar').withProjectDir(projectDir.toFile()).withGradleVersion(gradleVersion).build()
+        byte[] stock = Files.readAllBytes(archive)
+        Files.delete(archive)
+        newGradleRunner('jar', '-Pincremental').withProjectDir(projectDir.toFile()).withGradleVersion(gradleVersion).build()
+            .task(':multiReleaseJar').outcome == TaskOutcome.SUCCESS
+        Files.readAllBytes(archive) == stock
+
+        where:
+        [settings, gradleVersion] << [['entryCompression = ZipEntryCompression.STORED', 'zip64 = true',
+            "metadataCharset = 'ISO-8859-1'", "filePermissions { unix('0444') }; dirPermissions { unix('0555') }"],
+            GRADLE_VERSIONS].combinations()
+    }
+
+    void 'incremental jar fails when #reason'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        String config = INCREMENTAL + "\njar { ${settings} }\n"
+        Files.write(projectDir.resolve('build.gradle'), config.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+
+        expect:
+        BuildResult result = newGradleRunner('jar', '-Pincremental').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).buildAndFail()
+        result.output.contains(message)
+
+        where:
+        [reason, settings, message, gradleVersion] << [
+            [['timestamps are preserved', 'preserveFileTimestamps = true', 'requires preserveFileTimestamps to be false'],
+            ['the jar task has its own actions', "doLast { println 'jar written' }", ':jar has actions besides writing the jar']],
+            GRADLE_VERSIONS].combinations().collect{ it[0] + [it[1]] }
+    }
+
+    void 'parallel compression writes the same jar as serial compression'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        Path archive = projectDir.resolve('build/libs/test3.jar')
+        String threads = """
+mrjar { incrementalJar = true }
+jar { preserveFileTimestamps = false }
+tasks.withType(${MultiReleaseJar.name}).configureEach { compressionThreads = project.findProperty('threads') as Integer ?: 4 }
+"""
+        Files.write(projectDir.resolve('build.gradle'), threads.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+
+        expect:
+        newGradleRunner('jar').withProjectDir(projectDir.toFile()).withGradleVersion(gradleVersion).build()
+            .task(':multiReleaseJar').outcome == TaskOutcome.SUCCESS
+        byte[] parallel = Files.readAllBytes(archive)
+
+        newGradleRunner('jar', '-Pthreads=1', '--rerun-tasks').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        Files.readAllBytes(archive) == parallel
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'versioned entries identical to a lower version are omitted'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        Path code = tempDir.resolve('src/test/resources/code/src')
+        Files.copy(code.resolve('java9/java/test/CreatePerson.java'), code.resolve('java10/java/test/CreatePerson.java'),
+            StandardCopyOption.REPLACE_EXISTING)
+        String deduplicate = "\nmrjar { deduplicateVersionedEntries = !project.hasProperty('keepRedundant') }\n" + INCREMENTAL
+        Files.write(projectDir.resolve('build.gradle'), deduplicate.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+
+        expect:
+        BuildResult result = newGradleRunner('jar', 'sourcesJar').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        result.output.contains(':jar omitted 1 versioned entries that are identical to a lower version')
+        result.output.contains(':sourcesJar omitted 1 versioned entries that are identical to a lower version')
+        !jarPaths(projectDir.resolve('build/libs/test3-sources.jar')).contains('META-INF/versions/10/test/CreatePerson.java')
+        List<String> paths = jarPaths(projectDir.resolve('build/libs/test3.jar'))
+        paths.contains('META-INF/versions/9/test/CreatePerson.class')
+        !paths.contains('META-INF/versions/10/test/CreatePerson.class')
+
+        // only the state of omitting entries differs from the prior execution
+        BuildResult kept = newGradleRunner('jar', '-PkeepRedundant').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        kept.task(':jar').outcome == TaskOutcome.SUCCESS
+        jarPaths(projectDir.resolve('build/libs/test3.jar')).contains('META-INF/versions/10/test/CreatePerson.class')
+
+        BuildResult incremental = newGradleRunner('jar', '-Pincremental').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        incremental.output.contains(':multiReleaseJar omitted 1 versioned entries that are identical to a lower version')
+        jarPaths(projectDir.resolve('build/libs/test3.jar')) == paths
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'flat jars contain what each version resolves'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        String flatJars = "\nmrjar { flatJars = true }\njar { manifest { attributes('Implementation-Title': 'test3') } }\n"
+        Files.write(projectDir.resolve('build.gradle'), flatJars.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+
+        expect:
+        BuildResult result = newGradleRunner('java9FlatJar', 'java10FlatJar', 'outgoingVariants')
+            .withProjectDir(projectDir.toFile()).withGradleVersion(gradleVersion).build()
+        result.output.contains('Variant java9FlatRuntimeElements')
+        result.output.contains('Variant java10FlatRuntimeElements')
+        for (int version : [9, 10]) {
+            File flatJar = projectDir.resolve("build/libs/test3-java${version}.jar").toFile()
+            assert jarPaths(flatJar) == ['META-INF/MANIFEST.MF', 'module-info.class', 'test/CreatePerson.class',
+                'test/Person.class']
+            assert jarFileContents(flatJar, 'test/CreatePerson.class') ==
+                Files.readAllBytes(projectDir.resolve("build/classes/java/java${version}/test/CreatePerson.class"))
+            String manifest = new String(jarFileContents(flatJar, 'META-INF/MANIFEST.MF'), StandardCharsets.UTF_8)
+            assert manifest.contains('Implementation-Title: test3')
+            assert !manifest.contains('Multi-Release')
+        }
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'tests use an exploded jar of what their version resolves'() {
+        setup:
+        copyTree(Paths.get('src/test/resources/code'), tempDir.resolve('src/test/resources/code'))
+        Path projectDir = tempDir.resolve('testprojects/test3')
+        copyTree(Paths.get('testprojects/test3'), projectDir)
+        String exploded = "\nmrjar { useExplodedJarInTests = true }\n"
+        Files.write(projectDir.resolve('build.gradle'), exploded.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND)
+
+        expect:
+        BuildResult dryRun = newGradleRunner('java10Test', '--dry-run').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        dryRun.output.contains(':java10ExplodedJar SKIPPED')
+        !dryRun.output.contains(':jar SKIPPED')
+
+        BuildResult result = newGradleRunner('java9ExplodedJar', 'java10ExplodedJar').withProjectDir(projectDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        result.task(':java10ExplodedJar').outcome == TaskOutcome.SUCCESS
+        for (int version : [9, 10]) {
+            Path explodedDir = projectDir.resolve("build/mrjar/exploded/java${version}")
+            assert Files.readAllBytes(explodedDir.resolve('test/CreatePerson.class')) ==
+                Files.readAllBytes(projectDir.resolve("build/classes/java/java${version}/test/CreatePerson.class"))
+            assert Files.readAllBytes(explodedDir.resolve('module-info.class')) ==
+                Files.readAllBytes(projectDir.resolve('build/classes/java/java9/module-info.class'))
+            assert Files.isRegularFile(explodedDir.resolve('test/Person.class'))
+        }
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.gradle.api.JavaVersion
+import org.gradle.api.Project
+import org.gradle.api.tasks.compile.JavaCompile
+import org.gradle.testfixtures.ProjectBuilder
+import org.gradle.testkit.runner.BuildResult
+
+import net.kemuri9.gradle.mrjar.languages.LanguageSupportJava
+
+import spock.lang.TempDir
+
+class SingleCompilerSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    void 'every version is compiled by a single compiler for its release'() {
+        setup:
+        writeClass(tempDir, 'main', 'single.Base')
+        for (int version : [9, 10]) {
+            writeClass(tempDir, "java${version}", "single.Main${version}")
+        }
+        writeProject(tempDir, 'single', '''
+            useSingleCompiler = true
+            addVersion(9) { main { dependsOn(8) } }
+            addVersion(10) { main { dependsOn(9) } }
+        ''', """
+tasks.register('printCompilers') {
+    def compilers = provider { tasks.withType(JavaCompile).matching{ it.name.startsWith('compileJava1') || it.name.startsWith('compileJava9') }
+        .collect{ "COMPILER \${it.name} \${it.options.release.get()} \${it.javaCompiler.get().metadata.languageVersion}" } }
+    doLast { compilers.get().each{ println it } }
+}
+""")
+
+        expect:
+        BuildResult result = newGradleRunner('jar', 'printCompilers').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        String current = JavaVersion.current().majorVersion
+        result.output.readLines().findAll{ it.startsWith('COMPILER') }.sort() ==
+            ["COMPILER compileJava10Java 10 ${current}", "COMPILER compileJava9Java 9 ${current}"]*.toString()
+        readMajorVersion(tempDir.resolve('build/classes/java/java9/single/Main9.class')) == 53
+        readMajorVersion(tempDir.resolve('build/classes/java/java10/single/Main10.class')) == 54
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'a java #compilerVersion compiler targets java 9 with release #release'() {
+        setup:
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.toFile()).build()
+        JavaCompile compile = project.tasks.register('compileJava9Java', JavaCompile).get()
+
+        when:
+        new LanguageSupportJava.JavaCompileHandler().setReleaseOptions(compile, JavaVersion.VERSION_1_9,
+            JavaVersion.toVersion(compilerVersion))
+
+        then:
+        compile.options.release.orNull == release
+        compile.sourceCompatibility == '9'
+        compile.targetCompatibility == '9'
+
+        where:
+        compilerVersion | release
+        9               | null
+        10              | 9
+        17              | 9
+    }
+
+    protected int readMajorVersion(Path classFile) {
+        byte[] contents = Files.readAllBytes(classFile)
+        ((contents[6] & 0xFF) << 8) | (contents[7] & 0xFF)
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.gradle.testkit.runner.BuildResult
+
+import spock.lang.TempDir
+
+class SkipEmptyVersionsSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    void 'versions without sources are skipped'() {
+        setup:
+        writeClass(tempDir, 'main', 'skip.Base')
+        writeClass(tempDir, 'java9', 'skip.Main9')
+        writeClass(tempDir, 'java11', 'skip.Main11')
+        Files.createDirectories(tempDir.resolve('src/java10/java'))
+        writeProject(tempDir, 'skip', '''
+            skipEmptyVersions = true
+            addVersion(9) { main { dependsOn(8) } }
+            addVersion(10) { main { dependsOn(9) } }
+            addVersion(11) { main { dependsOn(10); dependsOn(9) } }
+        ''')
+
+        expect:
+        BuildResult first = newGradleRunner('jar', 'tasks', '--all', '--configuration-cache').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        first.output.contains('compileJava11Java')
+        !first.output.contains('compileJava10Java')
+        jarPaths(tempDir.resolve('build/libs/skip.jar')) == ['META-INF/MANIFEST.MF', 'META-INF/versions/11/skip/Main11.class',
+            'META-INF/versions/9/skip/Main9.class', 'skip/Base.class']
+
+        when: 'sources are added to the skipped version'
+        writeClass(tempDir, 'java10', 'skip.Main10')
+        BuildResult second = newGradleRunner('jar', '--configuration-cache').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+
+        then:
+        !second.output.contains('Configuration cache entry reused.')
+        jarPaths(tempDir.resolve('build/libs/skip.jar')).contains('META-INF/versions/10/skip/Main10.class')
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'dependencies of skipped versions are passed on to their dependents'() {
+        setup:
+        writeClass(tempDir, 'main', 'skip.Base')
+        writeClass(tempDir, 'java9', 'skip.Main9')
+        writeClass(tempDir, 'java12', 'skip.Main12', ' Main9 main9; Base base; ')
+        writeClass(tempDir, 'java11Test', 'skip.Check11', ' Main9 main9; Base base; ')
+        Files.createDirectories(tempDir.resolve('src/java10/java'))
+        Files.createDirectories(tempDir.resolve('src/java11/java'))
+        writeProject(tempDir, 'skip', '''
+            skipEmptyVersions = true
+            addVersion(9) { main { dependsOn(8) } }
+            addVersion(10) { main { dependsOn(9) } }
+            addVersion(11) {
+                main { dependsOn(10); dependsOn(8) }
+                test { dependsOn(8) }
+            }
+            addVersion(12) { main { dependsOn(11) } }
+        ''', '''
+tasks.register('printClasspaths') {
+    def classpaths = provider { ['compileJava12Java', 'compileJava11TestJava'].collect{ name ->
+        "CLASSPATH ${name} " + tasks.named(name).get().classpath.files.collect{ project.relativePath(it).replace('\\\\', '/') } } }
+    doLast { classpaths.get().each{ println it } }
+}
+''')
+
+        expect:
+        BuildResult result = newGradleRunner('jar', 'compileJava11TestJava', 'printClasspaths', '--configuration-cache')
+            .withProjectDir(tempDir.toFile()).withGradleVersion(gradleVersion).build()
+        result.output.readLines().findAll{ it.startsWith('CLASSPATH') } == [
+            'CLASSPATH compileJava12Java [build/classes/java/java9, build/classes/java/main]',
+            'CLASSPATH compileJava11TestJava [build/classes/java/java9, build/classes/java/main]']
+        jarPaths(tempDir.resolve('build/libs/skip.jar')) == ['META-INF/MANIFEST.MF', 'META-INF/versions/12/skip/Main12.class',
+            'META-INF/versions/9/skip/Main9.class', 'skip/Base.class']
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'skipping versions fails when it is set late or other source directories are configured'() {
+        setup:
+        writeClass(tempDir, 'main', 'skip.Base')
+        writeClass(tempDir, 'other', 'skip.Main9')
+        Files.createDirectories(tempDir.resolve('src/java9/java'))
+        writeProject(tempDir, 'skip', lateSetting ? """
+            addVersion(9) { main { dependsOn(8) } }
+            skipEmptyVersions = true
+        """ : """
+            skipEmptyVersions = true
+            addVersion(9) { main { dependsOn(8); java { src { srcDirs = ['src/other/java'] } } } }
+        """)
+
+        expect:
+        BuildResult result = newGradleRunner('jar').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).buildAndFail()
+        result.output.contains(lateSetting ? "property 'skipEmptyVersions' is final and cannot be changed any further"
+            : 'are skipped as empty, and cannot be configured with the source directories')
+
+        where:
+        [lateSetting, gradleVersion] << [[true, false], GRADLE_VERSIONS].combinations()
+    }
+}
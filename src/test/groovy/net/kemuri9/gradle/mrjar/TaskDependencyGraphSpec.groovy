@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import spock.lang.Specification
+
+class TaskDependencyGraphSpec extends Specification {
+
+    protected TaskDependencyGraph graph(Map<String, List<String>> edges) {
+        TaskDependencyGraph graph = new TaskDependencyGraph()
+        edges.each { from, tos -> tos.each { graph.addEdge(from, it) } }
+        graph
+    }
+
+    void 'dependency #from -> #to is redundant: #redundant'() {
+        setup:
+        TaskDependencyGraph graph = graph([
+            compileJava17Java: ['compileJava11Java', 'compileJava9Java', 'compileJava'],
+            compileJava11Java: ['compileJava9Java'],
+            compileJava9Java: ['compileJava'],
+            compileJava10Java: ['compileJava9Java', 'compileTestJava']])
+
+        expect:
+        graph.isRedundant(from, to) == redundant
+
+        where:
+        from                | to                  | redundant
+        'compileJava17Java' | 'compileJava11Java' | false
+        'compileJava17Java' | 'compileJava9Java'  | true
+        'compileJava17Java' | 'compileJava'       | true
+        'compileJava11Java' | 'compileJava9Java'  | false
+        'compileJava10Java' | 'compileJava9Java'  | false
+        'compileJava10Java' | 'compileTestJava'   | false
+        'compileJava'       | 'compileJava9Java'  | false
+    }
+
+    void 'dependencies added later are taken into account'() {
+        setup:
+        TaskDependencyGraph graph = graph([compileJava11Java: ['compileJava10Java', 'compileJava9Java']])
+
+        expect:
+        !graph.isRedundant('compileJava11Java', 'compileJava9Java')
+
+        when:
+        graph.addEdge('compileJava10Java', 'compileJava9Java')
+
+        then:
+        graph.isRedundant('compileJava11Java', 'compileJava9Java')
+    }
+}
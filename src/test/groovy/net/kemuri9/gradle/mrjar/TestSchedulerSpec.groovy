@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Path
+
+import org.gradle.testkit.runner.BuildResult
+
+import spock.lang.TempDir
+
+class TestSchedulerSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    protected void createProject() {
+        writeClass(tempDir, 'main', 'schedule.Base')
+        for (String name : ['test', 'java9Test', 'java11Test']) {
+            writeClass(tempDir, name, "schedule.Check${name}")
+        }
+        writeProject(tempDir, 'schedule', '''
+            testForkBudget = 6
+            addVersion(9) { test { dependsOn(8) } }
+            addVersion(11) { test { dependsOn(8) } }
+        ''', """
+tasks.register('printSchedule') {
+    def schedule = provider { tasks.withType(Test).toList().collect{ ("SCHEDULE \${it.name} \${it.maxParallelForks} " +
+        it.shouldRunAfter.getDependencies(it).findAll{ it instanceof Test }*.name).toString() } }.get()
+    doLast { schedule.each{ println it } }
+}
+""")
+    }
+
+    void 'test tasks are scheduled longest first with shares of the fork budget'() {
+        setup:
+        createProject()
+        writeFile(tempDir.resolve('build/mrjar/test-durations.properties'),
+            '\\:test=1000\n\\:java9Test=2000\n\\:java11Test=9000\n')
+
+        expect:
+        BuildResult result = newGradleRunner('printSchedule').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        result.output.readLines().findAll{ it.startsWith('SCHEDULE') }.sort() ==
+            ['SCHEDULE java11Test 4 []', 'SCHEDULE java9Test 1 [java11Test]', 'SCHEDULE test 1 [java9Test]']
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'test tasks wait for the forks of the budget that they use'() {
+        setup:
+        createProject()
+        tempDir.resolve('build.gradle') << """
+mrjar { testForkBudget = 2 }
+tasks.withType(Test).configureEach {
+    doLast {
+        println "START \${name} \${System.currentTimeMillis()}"
+        Thread.sleep(1000)
+        println "END \${name} \${System.currentTimeMillis()}"
+    }
+}
+"""
+
+        expect: 'without recorded durations, java11Test uses the same fork as test'
+        BuildResult result = newGradleRunner('check', '--configuration-cache').withProjectDir(tempDir.toFile())
+            .withGradleVersion(gradleVersion).build()
+        Map<String, Long> times = result.output.readLines().findAll{ it.startsWith('START ') || it.startsWith('END ') }
+            .collectEntries{ String[] parts = it.split(' '); [(parts[0] + ' ' + parts[1]): Long.parseLong(parts[2])] }
+        times['START java11Test'] >= times['END test']
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'durations of test tasks are recorded'() {
+        setup:
+        createProject()
+
+        expect:
+        newGradleRunner('check').withProjectDir(tempDir.toFile()).withGradleVersion(gradleVersion).build()
+        Properties durations = new Properties()
+        tempDir.resolve('build/mrjar/test-durations.properties').withInputStream{ durations.load(it) }
+        durations.stringPropertyNames() == [':test', ':java9Test', ':java11Test'] as Set
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+
+    void 'durations of failing test tasks are recorded'() {
+        setup:
+        createProject()
+        tempDir.resolve('build.gradle') << """
+tasks.named('java11Test') {
+    doLast { throw new GradleException('failing suite') }
+}
+"""
+
+        expect:
+        newGradleRunner('check', '--continue').withProjectDir(tempDir.toFile()).withGradleVersion(gradleVersion).buildAndFail()
+        Properties durations = new Properties()
+        tempDir.resolve('build/mrjar/test-durations.properties').withInputStream{ durations.load(it) }
+        durations.stringPropertyNames() == [':test', ':java9Test', ':java11Test'] as Set
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+}
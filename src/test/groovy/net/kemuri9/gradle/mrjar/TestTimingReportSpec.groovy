@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import groovy.json.JsonSlurper
+import spock.lang.TempDir
+
+class TestTimingReportSpec extends GradleRunnerSpecification {
+
+    @TempDir
+    Path tempDir
+
+    protected void writeResults(String task, Map<String, String> times) {
+        String cases = times.collect{ name, time -> "  <testcase name=\"${name}\" classname=\"timing.CaseTest\" time=\"${time}\"/>\n" }.join()
+        writeFile(tempDir.resolve("build/test-results/${task}/TEST-timing.CaseTest.xml"),
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuite name=\"timing.CaseTest\">\n${cases}</testsuite>\n")
+    }
+
+    void 'durations of the same tests are compared between versions'() {
+        setup:
+        writeClass(tempDir, 'main', 'timing.Base')
+        writeClass(tempDir, 'java11Test', 'timing.Check')
+        writeProject(tempDir, 'timing', 'addVersion(11) { test { dependsOn(8) } }')
+        writeResults('test', ['faster()': '0.200', 'slower()': '0.100', 'tiny()': '0.002'])
+        writeResults('java11Test', ['faster()': '0.100', 'slower()': '0.150', 'tiny()': '0.008', 'added()': '0.050'])
+
+        when:
+        newGradleRunner('testTimingReport').withProjectDir(tempDir.toFile()).withGradleVersion(gradleVersion).build()
+        def report = new JsonSlurper().parse(tempDir.resolve('build/reports/mrjar/testTimings/timings.json').toFile())
+        def tests = report.tests.collectEntries{ [(it.name): it] }
+
+        then:
+        report.tasks*.task == ['test', 'java11Test']
+        tests['faster()'].deltas.java11Test == -50.0
+        tests['faster()'].regressions == []
+        tests['slower()'].deltas.java11Test == 50.0
+        tests['slower()'].regressions == ['java11Test']
+        // too short to be considered a regression
+        tests['tiny()'].regressions == []
+        tests['added()'].deltas == [:]
+        report.classes.size() == 1
+        report.classes[0].durations == [test: 302, java11Test: 258]
+        Files.exists(tempDir.resolve('build/reports/mrjar/testTimings/index.html'))
+
+        where:
+        gradleVersion << GRADLE_VERSIONS
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021-2025 Steven Walters
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kemuri9.gradle.mrjar.languages
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.gradle.api.Action
+import org.gradle.api.Project
+import org.gradle.api.file.FileTree
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.testfixtures.ProjectBuilder
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class DuplicateClassRemoverSpec extends Specification {
+
+    @TempDir
+    Path tempDir
+
+    Project project
+
+    void setup() {
+        project = ProjectBuilder.builder().withProjectDir(tempDir.toFile()).build()
+        writeFile('java11/a/A.java')
+        writeFile('java11/a/B.java')
+        writeFile('java9/a/A.java')
+        writeFile('java9/a/C.java')
+    }
+
+    protected File writeFile(String path) {
+        Path file = tempDir.resolve(path)
+        Files.createDirectories(file.parent)
+        Files.write(file, path.getBytes(StandardCharsets.UTF_8))
+        file.toFile()
+    }
+
+    protected FileTree sources() {
+        project.files('java11', 'java9').asFileTree
+    }
+
+    void 'sources are not indexed until the duplicates are requested, and then only once'() {
+        setup:
+        FileTree sources = sources()
+        FileTree source = Mock(FileTree)
+
+        when:
+        DuplicateClassRemover remover = new DuplicateClassRemover(source)
+        // sources added after creation are still taken into account
+        File added = writeFile('java9/a/B.java')
+
+        then:
+        0 * source._
+
+        when:
+        Set<File> duplicates = remover.getDuplicates()
+        boolean excluded = remover.isSatisfiedBy(Stub(FileTreeElement) { getFile() >> added })
+
+        then:
+        1 * source.visit(_ as Action) >> { Action action -> sources.visit(action); source }
+        0 * source._
+        duplicates == [tempDir.resolve('java9/a/A.java').toFile(), added] as Set
+        excluded
+    }
+
+    void 'sources filtered by the remover itself are indexed without recursing'() {
+        setup:
+        PatternSet patterns = new PatternSet()
+        FileTree filtered = sources().matching(patterns)
+        DuplicateClassRemover remover = new DuplicateClassRemover(filtered)
+        patterns.exclude(remover)
+
+        expect:
+        filtered.files.collect{ tempDir.relativize(it.toPath()).toString().replace(File.separatorChar, '/' as char) }.sort() ==
+            ['java11/a/A.java', 'java11/a/B.java', 'java9/a/C.java']
+    }
+
+    void 'sources are indexed again once reset'() {
+        setup:
+        PatternSet patterns = new PatternSet()
+        FileTree filtered = sources().matching(patterns)
+        DuplicateClassRemover remover = new DuplicateClassRemover(filtered)
+        patterns.exclude(remover)
+
+        expect:
+        filtered.files.size() == 3
+
+        when:
+        File added = writeFile('java9/a/B.java')
+
+        then: 'the index is retained until reset'
+        filtered.files.size() == 4
+
+        when:
+        remover.reset()
+
+        then:
+        filtered.files.size() == 3
+        !filtered.files.contains(added)
+    }
+
+    void 'the remover is populated by visiting when created without sources'() {
+        setup:
+        DuplicateClassRemover remover = new DuplicateClassRemover()
+
+        when:
+        sources().visit(remover)
+
+        then:
+        remover.getDuplicates() == [tempDir.resolve('java9/a/A.java').toFile()] as Set
+
+        when:
+        remover.reset()
+
+        then:
+        remover.getDuplicates().isEmpty()
+    }
+}